@@ -1,5 +1,7 @@
 package moe.caa.multilogin.api.auth;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 验证 API
  */
@@ -14,4 +16,14 @@ public interface AuthAPI {
      * @return 验证结果
      */
     AuthResult auth(String username, String serverId, String ip);
+
+    /**
+     * 异步进行验证，验证过程不会阻塞调用线程
+     *
+     * @param username 用户名
+     * @param serverId 服务器ID
+     * @param ip       用户IP
+     * @return 验证结果
+     */
+    CompletableFuture<? extends AuthResult> authAsync(String username, String serverId, String ip);
 }
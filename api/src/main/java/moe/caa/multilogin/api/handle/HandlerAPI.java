@@ -25,6 +25,14 @@ public interface HandlerAPI {
      */
     HandleResult pushPlayerJoinGame(UUID inGameUUID, String username);
 
+    /**
+     * 在异步线程中预先取出玩家的登录数据，随后的加入事件不再访问登录缓存存储
+     * 登录缓存保存在数据库中时，避免在服务器主线程中读写数据库
+     *
+     * @param inGameUUID 玩家的游戏内 UUID
+     */
+    void prefetchPlayerJoinGame(UUID inGameUUID);
+
     void callPlayerJoinGame(IPlayer player);
 
     /**
@@ -26,6 +26,13 @@ public class DebugLoggerBridge implements Logger {
         }
     }
 
+    /**
+     * 是否已开启调试模式
+     */
+    public static boolean isDebugMode() {
+        return LoggerProvider.getLogger() instanceof DebugLoggerBridge;
+    }
+
     @Override
     public void log(Level level, String message, Throwable throwable) {
         if (level == Level.DEBUG) {
@@ -0,0 +1,52 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.benchmarks.harness.StubYggdrasilServer;
+import moe.caa.multilogin.core.auth.LoginAuthResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 完整的登录验证，hasJoined 由本地模拟服务响应，数据保存在 H2 中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthBenchmark {
+    // 参与登录的玩家数，玩家轮流登录，预热后都是已有数据的老玩家
+    @Param({"1000"})
+    public int players;
+
+    private StubYggdrasilServer server;
+    private HarnessCore harness;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new StubYggdrasilServer(0, 0);
+        server.start();
+        harness = new HarnessCore(HarnessCore.defaultConfig(true), server.getHasJoinedUrl());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+        server.close();
+    }
+
+    private String nextUsername() {
+        return "player" + Math.floorMod(counter.getAndIncrement(), players);
+    }
+
+    @Benchmark
+    public LoginAuthResult auth() {
+        return harness.getCore().getAuthHandler().auth(nextUsername(), "serverId", "127.0.0.1");
+    }
+
+    @Benchmark
+    public LoginAuthResult authAsync() {
+        return harness.getCore().getAuthHandler().authAsync(nextUsername(), "serverId", "127.0.0.1").join();
+    }
+}
@@ -0,0 +1,59 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.flows.workflows.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作流本身的调度开销，每道工序都立即完成
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlowsBenchmark {
+    @Param({"1", "4", "16"})
+    public int steps;
+
+    private SequenceFlows<Object> sequenceFlows;
+    private EntrustFlows<Object> entrustFlows;
+    private ParallelFlows<Object> parallelFlows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<BaseFlows<Object>> list = new ArrayList<>();
+        for (int i = 0; i < steps; i++) list.add(new PassedFlows());
+        sequenceFlows = new SequenceFlows<>(list);
+        entrustFlows = new EntrustFlows<>(list);
+        parallelFlows = new ParallelFlows<>(list);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BaseFlows.close();
+    }
+
+    @Benchmark
+    public Signal sequence() {
+        return sequenceFlows.run(new Object());
+    }
+
+    @Benchmark
+    public Signal entrust() {
+        return entrustFlows.run(new Object());
+    }
+
+    @Benchmark
+    public Signal parallel() {
+        return parallelFlows.run(new Object());
+    }
+
+    private static class PassedFlows extends BaseFlows<Object> {
+        @Override
+        public Signal run(Object context) {
+            return Signal.PASSED;
+        }
+    }
+}
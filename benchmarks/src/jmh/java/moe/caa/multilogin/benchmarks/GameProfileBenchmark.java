@@ -0,0 +1,51 @@
+package moe.caa.multilogin.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.api.auth.Property;
+import moe.caa.multilogin.core.auth.service.yggdrasil.serialize.GameProfileSerializer;
+import moe.caa.multilogin.core.auth.service.yggdrasil.serialize.PropertySerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hasJoined 响应的解析和档案复制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameProfileBenchmark {
+    // 与官方 hasJoined 响应结构相同，材质内容长度接近真实值
+    private static final String RESPONSE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\",\"properties\":[{\"name\":\"textures\","
+            + "\"value\":\"" + "ewogICJ0aW1lc3RhbXAiIDogMTY4MDAwMDAwMDAwMCwKICAicHJvZmlsZUlkIiA6ICIwNjlhNzlmNDQ0ZTk0NzI2YTViZWZjYTkwZTM4YWFmNSIsCiAgInByb2ZpbGVOYW1lIiA6ICJOb3RjaCIsCiAgInRleHR1cmVzIiA6IHsKICAgICJTS0lOIiA6IHsKICAgICAgInVybCIgOiAiaHR0cDovL3RleHR1cmVzLm1pbmVjcmFmdC5uZXQvdGV4dHVyZS8yOTIwMDlhNDkyNWI1OGYwMmM3N2RhZGMzZWNlZjA3ZWE0Yzc0NzJmNjRlMGZkYzMyY2U1NTIyNDg5MzYyNjgwIgogICAgfQogIH0KfQ==" + "\","
+            + "\"signature\":\"" + "A".repeat(684) + "\"}]}";
+
+    private Gson gson;
+    private GameProfile profile;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PropertySerializer propertySerializer = new PropertySerializer();
+        gson = new GsonBuilder()
+                .registerTypeAdapter(GameProfile.class, new GameProfileSerializer(propertySerializer))
+                .registerTypeAdapter(Property.class, propertySerializer).create();
+        profile = gson.fromJson(RESPONSE, GameProfile.class);
+    }
+
+    @Benchmark
+    public GameProfile parse() {
+        return gson.fromJson(RESPONSE, GameProfile.class);
+    }
+
+    @Benchmark
+    public GameProfile cloneProfile() {
+        return profile.clone();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(profile, GameProfile.class);
+    }
+}
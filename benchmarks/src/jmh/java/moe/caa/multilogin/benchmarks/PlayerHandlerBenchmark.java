@@ -0,0 +1,50 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.core.handle.PlayerHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大量玩家在线时按在线 UUID 查找游戏内 UUID
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerHandlerBenchmark {
+    @Param({"5000", "20000"})
+    public int online;
+
+    private HarnessCore harness;
+    private UUID[] onlineUUIDs;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new HarnessCore(HarnessCore.defaultConfig(true), "http://127.0.0.1:1/hasJoined?username={0}&serverId={1}{2}");
+        PlayerHandler playerHandler = harness.getCore().getPlayerHandler();
+        onlineUUIDs = new UUID[online];
+        for (int i = 0; i < online; i++) {
+            onlineUUIDs[i] = UUID.randomUUID();
+            UUID inGameUUID = UUID.randomUUID();
+            GameProfile profile = new GameProfile(onlineUUIDs[i], "player" + i, new HashMap<>());
+            playerHandler.getLoginCacheStore().put(inGameUUID, new PlayerHandler.Entry(profile, harness.getServiceConfig(), System.currentTimeMillis()));
+            playerHandler.pushPlayerJoinGame(inGameUUID, profile.getName());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    public UUID getInGameUUID() {
+        return harness.getCore().getPlayerHandler().getInGameUUID(onlineUUIDs[Math.floorMod(counter.getAndIncrement(), online)], HarnessCore.SERVICE_ID);
+    }
+}
@@ -0,0 +1,67 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.core.skinrestorer.TextureSignatureVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 材质签名校验开销
+ * 没有官方私钥，签名是随机数据，校验失败但 RSA 运算的开销相同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SignatureBenchmark {
+    private final TextureSignatureVerifier verifier = new TextureSignatureVerifier(4096);
+    private String value;
+    private String signature;
+    private PublicKey publicKey;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(0);
+        value = Base64.getEncoder().encodeToString(("{\"timestamp\":0,\"profileName\":\"Player\",\"textures\":{\"SKIN\":" +
+                "{\"url\":\"http://textures.minecraft.net/texture/" + Long.toHexString(random.nextLong()) + "\"}}}").getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = new byte[512];
+        random.nextBytes(bytes);
+        // 首字节为 0 保证签名小于模数
+        bytes[0] = 0;
+        signature = Base64.getEncoder().encodeToString(bytes);
+        // 与官方公钥长度相同的任意公钥，用于还原改动前每次获取新实例的开销
+        byte[] modulus = new byte[513];
+        random.nextBytes(modulus);
+        modulus[0] = 0;
+        modulus[1] |= (byte) 0x80;
+        modulus[512] |= 1;
+        publicKey = KeyFactory.getInstance("RSA").generatePublic(
+                new RSAPublicKeySpec(new BigInteger(modulus), BigInteger.valueOf(65537)));
+        verifier.isSignatureValid(value, signature);
+    }
+
+    @Benchmark
+    public boolean freshInstance() throws Exception {
+        Signature instance = Signature.getInstance("SHA1withRSA");
+        instance.initVerify(publicKey);
+        instance.update(value.getBytes(StandardCharsets.UTF_8));
+        return instance.verify(Base64.getDecoder().decode(signature));
+    }
+
+    @Benchmark
+    public boolean threadLocalInstance() throws Exception {
+        return verifier.verify(value, signature);
+    }
+
+    @Benchmark
+    public boolean cached() throws Exception {
+        return verifier.isSignatureValid(value, signature);
+    }
+}
@@ -0,0 +1,96 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.api.util.ValueUtil;
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.benchmarks.harness.StubYggdrasilServer;
+import moe.caa.multilogin.core.database.pool.H2ConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按主键读取用户数据，对比每次拼接 SQL 与预先拼接并缓存已解析语句的耗时
+ * legacy: 原来的 H2 连接地址，每次调用 String.format 后重新准备语句
+ * precomputed: 现在的 H2 连接地址（QUERY_CACHE_SIZE=64），通过数据表使用预先拼接的 SQL
+ * 两种方式都关闭档案缓存，每次都会执行 SQL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatementBenchmark {
+    // 预先拼接 SQL 之前的 H2 连接地址
+    private static final String LEGACY_H2_URL = "jdbc:h2:{0};TRACE_LEVEL_FILE=0;TRACE_LEVEL_SYSTEM_OUT=0";
+    private static final String TABLE_NAME = "multilogin_user_data_v4";
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"legacy", "precomputed"})
+    public String sql;
+
+    private HarnessCore harness;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String url = sql.equals("legacy") ? LEGACY_H2_URL : H2ConnectionPool.defaultUrl;
+        harness = new HarnessCore(String.join("\n",
+                "profileCache:",
+                "  enable: false",
+                "sql:",
+                "  backend: 'H2'",
+                "  connectUrl: '" + url + "'",
+                ""), "http://127.0.0.1:1/hasJoined?username={0}&serverId={1}{2}");
+        for (int i = 0; i < rows; i++) {
+            String name = "player" + i;
+            UUID inGameUUID = UUID.randomUUID();
+            harness.getCore().getSqlManager().getInGameProfileTable().insertNewData(inGameUUID, name);
+            harness.getCore().getSqlManager().getUserDataTable().insertNewData(StubYggdrasilServer.onlineUUIDOf(name), HarnessCore.SERVICE_ID, name, inGameUUID);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    private UUID nextOnlineUUID() {
+        return StubYggdrasilServer.onlineUUIDOf("player" + Math.floorMod(counter.getAndIncrement(), rows));
+    }
+
+    @Benchmark
+    public There<String, UUID, Boolean> getUserData() throws SQLException {
+        UUID onlineUUID = nextOnlineUUID();
+        if (sql.equals("precomputed")) {
+            return harness.getCore().getSqlManager().getUserDataTable().get(onlineUUID, HarnessCore.SERVICE_ID);
+        }
+        // 与预先拼接之前的 UserDataTableV3.get 相同
+        String select = String.format(
+                "SELECT %s, %s, %s FROM %s WHERE %s = ? AND %s = ? LIMIT 1"
+                , "online_name", "in_game_profile_uuid", "whitelist", TABLE_NAME, "online_uuid", "service_id"
+        );
+        try (Connection connection = harness.getCore().getSqlManager().getPool().getConnection();
+             PreparedStatement statement = connection.prepareStatement(select)
+        ) {
+            statement.setBytes(1, ValueUtil.uuidToBytes(onlineUUID));
+            statement.setInt(2, HarnessCore.SERVICE_ID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return new There<>(
+                            resultSet.getString(1),
+                            Optional.ofNullable(resultSet.getBytes(2)).map(ValueUtil::bytesToUuid).orElse(null),
+                            resultSet.getBoolean(3));
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.benchmarks.harness.StubYggdrasilServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据表读取，关闭档案缓存时每次都会执行 SQL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TableBenchmark {
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean profileCache;
+
+    private HarnessCore harness;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new HarnessCore(HarnessCore.defaultConfig(profileCache), "http://127.0.0.1:1/hasJoined?username={0}&serverId={1}{2}");
+        for (int i = 0; i < rows; i++) {
+            String name = "player" + i;
+            UUID inGameUUID = UUID.randomUUID();
+            harness.getCore().getSqlManager().getInGameProfileTable().insertNewData(inGameUUID, name);
+            harness.getCore().getSqlManager().getUserDataTable().insertNewData(StubYggdrasilServer.onlineUUIDOf(name), HarnessCore.SERVICE_ID, name, inGameUUID);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    private String nextUsername() {
+        return "player" + Math.floorMod(counter.getAndIncrement(), rows);
+    }
+
+    @Benchmark
+    public There<String, UUID, Boolean> getUserData() throws SQLException {
+        return harness.getCore().getSqlManager().getUserDataTable().get(StubYggdrasilServer.onlineUUIDOf(nextUsername()), HarnessCore.SERVICE_ID);
+    }
+
+    @Benchmark
+    public UUID getInGameUUIDIgnoreCase() throws SQLException {
+        return harness.getCore().getSqlManager().getInGameProfileTable().getInGameUUIDIgnoreCase(nextUsername().toUpperCase());
+    }
+}
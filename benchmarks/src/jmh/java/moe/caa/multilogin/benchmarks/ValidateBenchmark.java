@@ -0,0 +1,54 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.benchmarks.harness.StubYggdrasilServer;
+import moe.caa.multilogin.core.auth.service.yggdrasil.YggdrasilAuthenticationResult;
+import moe.caa.multilogin.core.auth.validate.ValidateAuthenticationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 游戏内验证的顺序流，直接从 hasJoined 通过之后开始，数据保存在 H2 中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidateBenchmark {
+    @Param({"1000"})
+    public int players;
+
+    @Param({"true", "false"})
+    public boolean profileCache;
+
+    private HarnessCore harness;
+    private YggdrasilAuthenticationResult[] results;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new HarnessCore(HarnessCore.defaultConfig(profileCache), "http://127.0.0.1:1/hasJoined?username={0}&serverId={1}{2}");
+        results = new YggdrasilAuthenticationResult[players];
+        for (int i = 0; i < players; i++) {
+            GameProfile profile = new GameProfile();
+            profile.setName("player" + i);
+            profile.setId(StubYggdrasilServer.onlineUUIDOf(profile.getName()));
+            profile.setPropertyMap(new HashMap<>());
+            results[i] = new YggdrasilAuthenticationResult(YggdrasilAuthenticationResult.Reason.ALLOWED, profile, harness.getServiceConfig());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    public ValidateAuthenticationResult checkIn() {
+        YggdrasilAuthenticationResult result = results[Math.floorMod(counter.getAndIncrement(), players)];
+        return harness.getCore().getAuthHandler().getValidateAuthenticationService().checkIn(result);
+    }
+}
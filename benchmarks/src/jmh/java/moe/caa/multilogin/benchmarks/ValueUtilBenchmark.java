@@ -0,0 +1,40 @@
+package moe.caa.multilogin.benchmarks;
+
+import moe.caa.multilogin.api.util.Pair;
+import moe.caa.multilogin.api.util.ValueUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录流程中频繁调用的工具方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValueUtilBenchmark {
+    private static final String MESSAGE = "§a[{service_name}§8(sid = {service_id})§a] §f{state} §7连续失败: {failures}, 剩余熔断: {remaining}ms";
+    private final UUID uuid = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private final byte[] bytes = ValueUtil.uuidToBytes(uuid);
+
+    @Benchmark
+    public byte[] uuidToBytes() {
+        return ValueUtil.uuidToBytes(uuid);
+    }
+
+    @Benchmark
+    public UUID bytesToUuid() {
+        return ValueUtil.bytesToUuid(bytes);
+    }
+
+    @Benchmark
+    public String transPapi() {
+        return ValueUtil.transPapi(MESSAGE,
+                new Pair<>("service_name", "Official"),
+                new Pair<>("service_id", 1),
+                new Pair<>("state", "CLOSED"),
+                new Pair<>("failures", 0),
+                new Pair<>("remaining", 0));
+    }
+}
@@ -0,0 +1,84 @@
+package moe.caa.multilogin.benchmarks.harness;
+
+import lombok.Getter;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.api.util.IOUtil;
+import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
+import moe.caa.multilogin.core.main.MultiCore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 在临时目录中启动的猫踢核心
+ * 只初始化验证流程需要的部分，不检查更新、不注册指令
+ */
+public class HarnessCore implements AutoCloseable {
+    // 模拟验证服务的 ID
+    public static final int SERVICE_ID = 1;
+    @Getter
+    private final File dataFolder;
+    @Getter
+    private final HarnessPlugin plugin;
+    @Getter
+    private final MultiCore core;
+
+    /**
+     * @param config      config.yml 的内容，未写出的节点使用默认值
+     * @param hasJoinedUrl 模拟验证服务的 hasJoined 地址
+     */
+    public HarnessCore(String config, String hasJoinedUrl) throws Exception {
+        // 基准测试中不输出日志
+        LoggerProvider.setLogger((level, message, throwable) -> {
+        });
+        this.dataFolder = Files.createTempDirectory("multilogin-harness").toFile();
+        File services = new File(dataFolder, "services");
+        Files.createDirectories(services.toPath());
+        Files.writeString(new File(dataFolder, "config.yml").toPath(), config, StandardCharsets.UTF_8);
+        Files.writeString(new File(services, "stub.yml").toPath(), String.join("\n",
+                "id: " + SERVICE_ID,
+                "name: 'Stub'",
+                "serviceType: CUSTOM_YGGDRASIL",
+                "yggdrasilAuth:",
+                "  custom:",
+                "    url: '" + hasJoinedUrl + "'",
+                "    method: 'GET'",
+                ""), StandardCharsets.UTF_8);
+
+        this.plugin = new HarnessPlugin(dataFolder);
+        this.core = new MultiCore(plugin);
+        core.getLanguageHandler().init();
+        core.getPluginConfig().reload();
+        core.getSqlManager().init();
+        core.getSkinRestorerHandler().getQueue().start();
+        core.getPlayerHandler().register();
+    }
+
+    /**
+     * 使用内嵌 H2 数据库的默认配置
+     */
+    public static String defaultConfig(boolean profileCache) {
+        return String.join("\n",
+                "profileCache:",
+                "  enable: " + profileCache,
+                "sql:",
+                "  backend: 'H2'",
+                "");
+    }
+
+    /**
+     * 模拟验证服务的配置
+     */
+    public BaseYggdrasilServiceConfig getServiceConfig() {
+        return (BaseYggdrasilServiceConfig) core.getPluginConfig().getServiceIdMap().get(SERVICE_ID);
+    }
+
+    @Override
+    public void close() throws IOException {
+        core.close();
+        plugin.shutdown();
+        IOUtil.removeAllFiles(dataFolder);
+    }
+}
@@ -0,0 +1,154 @@
+package moe.caa.multilogin.benchmarks.harness;
+
+import moe.caa.multilogin.api.plugin.*;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用于基准测试和压力测试的插件环境，没有真实的代理端
+ */
+public class HarnessPlugin implements IPlugin, IServer, IPlayerManager {
+    private final File dataFolder;
+    private final BaseScheduler scheduler = new BaseScheduler() {
+        @Override
+        public void runTask(Runnable run, long delay) {
+            runTaskAsync(run, delay);
+        }
+    };
+    // inGameUUID \ 在线玩家名称
+    private final Map<UUID, String> onlinePlayers = new ConcurrentHashMap<>();
+
+    public HarnessPlugin(File dataFolder) {
+        this.dataFolder = dataFolder;
+    }
+
+    /**
+     * 标记玩家在线
+     */
+    public void join(UUID inGameUUID, String name) {
+        onlinePlayers.put(inGameUUID, name);
+    }
+
+    /**
+     * 标记玩家离线
+     */
+    public void quit(UUID inGameUUID) {
+        onlinePlayers.remove(inGameUUID);
+    }
+
+    @Override
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    @Override
+    public File getTempFolder() {
+        return new File(dataFolder, "tmp");
+    }
+
+    @Override
+    public IServer getRunServer() {
+        return this;
+    }
+
+    @Override
+    public BaseScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public IPlayerManager getPlayerManager() {
+        return this;
+    }
+
+    @Override
+    public boolean isOnlineMode() {
+        return true;
+    }
+
+    @Override
+    public boolean isForwarded() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "Harness";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Override
+    public ISender getConsoleSender() {
+        return new HarnessSender();
+    }
+
+    @Override
+    public boolean pluginHasEnabled(String id) {
+        return false;
+    }
+
+    @Override
+    public Set<IPlayer> getPlayers(String name) {
+        return Set.of();
+    }
+
+    @Override
+    public IPlayer getPlayer(UUID uuid) {
+        return null;
+    }
+
+    @Override
+    public Set<IPlayer> getOnlinePlayers() {
+        return Set.of();
+    }
+
+    @Override
+    public boolean hasOnline(UUID redirectUuid) {
+        return onlinePlayers.containsKey(redirectUuid);
+    }
+
+    // 控制台，丢弃所有消息
+    private static class HarnessSender implements ISender {
+        @Override
+        public boolean isPlayer() {
+            return false;
+        }
+
+        @Override
+        public boolean isConsole() {
+            return true;
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return true;
+        }
+
+        @Override
+        public void sendMessagePL(String message) {
+        }
+
+        @Override
+        public String getName() {
+            return "CONSOLE";
+        }
+
+        @Override
+        public IPlayer getAsPlayer() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package moe.caa.multilogin.benchmarks.harness;
+
+import lombok.Getter;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地的 Yggdrasil hasJoined 模拟服务
+ * 任何用户名都能通过验证，在线 UUID 由用户名确定，可以注入延迟和错误
+ */
+public class StubYggdrasilServer implements AutoCloseable {
+    private final MockWebServer server = new MockWebServer();
+    private final long latencyMillis;
+    private final double errorRate;
+    @Getter
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * @param latencyMillis 每个请求的响应延迟，单位毫秒
+     * @param errorRate     返回 HTTP 500 的比例，0 到 1 之间
+     */
+    public StubYggdrasilServer(long latencyMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        requests.increment();
+        MockResponse response = new MockResponse();
+        if (latencyMillis > 0) response.setBodyDelay(latencyMillis, TimeUnit.MILLISECONDS);
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            return response.setResponseCode(500);
+        }
+        String username = request.getRequestUrl() == null ? null : request.getRequestUrl().queryParameter("username");
+        if (username == null) return response.setResponseCode(204);
+        return response.setHeader("Content-Type", "application/json").setBody(String.format(
+                "{\"id\":\"%s\",\"name\":\"%s\",\"properties\":[]}", onlineUUIDOf(username).toString().replace("-", ""), username));
+    }
+
+    /**
+     * 获得模拟服务为用户名分配的在线 UUID
+     */
+    public static UUID onlineUUIDOf(String username) {
+        return UUID.nameUUIDFromBytes(("StubYggdrasil:" + username).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 获得 CUSTOM_YGGDRASIL 服务配置中使用的 hasJoined 地址
+     */
+    public String getHasJoinedUrl() {
+        HttpUrl url = server.url("/session/minecraft/hasJoined");
+        return url + "?username={0}&serverId={1}{2}";
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -4,7 +4,9 @@ package moe.caa.multilogin.bukkit.main;
 import moe.caa.multilogin.api.handle.HandleResult;
 import moe.caa.multilogin.bukkit.impl.BukkitPlayer;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -20,6 +22,13 @@ public class GlobalListener implements Listener {
         this.multiLoginBukkit = multiLoginBungee;
     }
 
+    // 登录缓存可能保存在数据库中，在异步线程中预先取出，避免阻塞主线程
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        multiLoginBukkit.getMultiCoreAPI().getPlayerHandler().prefetchPlayerJoinGame(event.getUniqueId());
+    }
+
     @EventHandler
     public void onJoin(PlayerLoginEvent event) {
         HandleResult result = multiLoginBukkit.getMultiCoreAPI().getPlayerHandler().pushPlayerJoinGame(event.getPlayer().getUniqueId(), event.getPlayer().getName());
@@ -78,10 +78,12 @@ public class MultiEncryptionResponseInitialHandler extends AbstractMultiInitialH
          */
         String ip = getSocketAddressMethod.invoke(initialHandler) instanceof InetSocketAddress ? URLEncoder.encode(((InetSocketAddress) getAddressMethod.invoke(initialHandler)).getAddress().getHostAddress(), StandardCharsets.UTF_8) : "";
 
-        multiCoreAPI.getPlugin().getRunServer().getScheduler().runTaskAsync(() -> {
+        // 异步验证，完成后在异步线程中继续登录流程
+        multiCoreAPI.getAuthHandler().authAsync(encName, encodedHash, ip).whenComplete((authResult, throwable) -> multiCoreAPI.getPlugin().getRunServer().getScheduler().runTaskAsync(() -> {
 
             try {
-                LoginAuthResult result = (LoginAuthResult) multiCoreAPI.getAuthHandler().auth(encName, encodedHash, ip);
+                if (throwable != null) throw throwable;
+                LoginAuthResult result = (LoginAuthResult) authResult;
                 if (result.getResult() == AuthResult.Result.ALLOW) {
                     GameProfile gameProfile = result.getResponse();
 
@@ -112,7 +114,7 @@ public class MultiEncryptionResponseInitialHandler extends AbstractMultiInitialH
                 LoggerProvider.getLogger().error("An exception occurred while processing a login request.", e);
             }
 
-        });
+        }));
 
         // This is ok.
         // thisState = InitialHandler.State.FINISHING;
@@ -3,10 +3,12 @@ package fun.ksnb.multilogin.bungee.main;
 import fun.ksnb.multilogin.bungee.impl.BungeePlayer;
 import moe.caa.multilogin.api.handle.HandleResult;
 import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.event.LoginEvent;
 import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
 
 /**
  * Bungee 的事件处理程序
@@ -19,6 +21,20 @@ public class GlobalListener implements Listener {
         this.multiLoginBungee = multiLoginBungee;
     }
 
+    // 登录缓存可能保存在数据库中，PostLoginEvent 在 netty 线程上触发，在异步线程中预先取出
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onLogin(LoginEvent event) {
+        if (event.isCancelled()) return;
+        event.registerIntent(multiLoginBungee);
+        multiLoginBungee.getProxy().getScheduler().runAsync(multiLoginBungee, () -> {
+            try {
+                multiLoginBungee.getMultiCoreAPI().getPlayerHandler().prefetchPlayerJoinGame(event.getConnection().getUniqueId());
+            } finally {
+                event.completeIntent(multiLoginBungee);
+            }
+        });
+    }
+
     @EventHandler
     public void onJoin(PostLoginEvent event) {
         // TODO: 2023/3/12 PostLogin???
@@ -12,6 +12,9 @@ import moe.caa.multilogin.core.auth.validate.ValidateAuthenticationService;
 import moe.caa.multilogin.core.handle.PlayerHandler;
 import moe.caa.multilogin.core.main.MultiCore;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * 验证核心
  */
@@ -38,57 +41,140 @@ public class AuthHandler implements AuthAPI {
      */
     @Override
     public LoginAuthResult auth(String username, String serverId, String ip) {
+        long start = System.nanoTime();
+        LoginAuthResult result = auth0(username, serverId, ip);
+        recordAuth(result, start);
+        return result;
+    }
+
+    private LoginAuthResult auth0(String username, String serverId, String ip) {
         YggdrasilAuthenticationResult yggdrasilAuthenticationResult;
         try {
             yggdrasilAuthenticationResult = yggdrasilAuthenticationService.hasJoined(username, serverId, ip);
-            if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.NO_SERVICE) {
-                return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_failed_no_yggdrasil_service"));
-            }
-            if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
-                return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_server_down"));
-            }
-            if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.VALIDATION_FAILED) {
-                return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_validation_failed"));
-            }
-            if (yggdrasilAuthenticationResult.getReason() != YggdrasilAuthenticationResult.Reason.ALLOWED ||
-                    yggdrasilAuthenticationResult.getResponse() == null ||
-                    yggdrasilAuthenticationResult.getServiceConfig().getId() == -1) {
-                return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_unknown"));
-            }
+            LoginAuthResult disallowed = checkYggdrasilResult(yggdrasilAuthenticationResult);
+            if (disallowed != null) return disallowed;
         } catch (Exception e) {
-            LoggerProvider.getLogger().error("An exception occurred while processing the hasJoined request.", e);
-            return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(null, core.getLanguageHandler().getMessage("auth_yggdrasil_error"));
+            return handleYggdrasilError(e);
         }
 
         return checkIn(yggdrasilAuthenticationResult);
     }
 
-    public LoginAuthResult checkIn(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
+    /**
+     * 异步开始验证
+     *
+     * @param username 用户名
+     * @param serverId 服务器ID
+     * @param ip       用户IP
+     */
+    @Override
+    public CompletableFuture<LoginAuthResult> authAsync(String username, String serverId, String ip) {
+        long start = System.nanoTime();
+        return authAsync0(username, serverId, ip).whenComplete((result, throwable) -> recordAuth(result, start));
+    }
+
+    private CompletableFuture<LoginAuthResult> authAsync0(String username, String serverId, String ip) {
+        CompletableFuture<YggdrasilAuthenticationResult> hasJoined;
         try {
-            ValidateAuthenticationResult validateAuthenticationResult = validateAuthenticationService.checkIn(baseServiceAuthenticationResult);
-            if (validateAuthenticationResult.getReason() == ValidateAuthenticationResult.Reason.ALLOWED) {
-                LoggerProvider.getLogger().info(
-                        String.format("%s(uuid: %s) from authentication service %s(yid: %d) has been authenticated, profile redirected to %s(uuid: %s).",
-                                baseServiceAuthenticationResult.getResponse().getName(),
-                                baseServiceAuthenticationResult.getResponse().getId().toString(),
-                                baseServiceAuthenticationResult.getServiceConfig().getName(),
-                                baseServiceAuthenticationResult.getServiceConfig().getId(),
-                                validateAuthenticationResult.getInGameProfile().getName(),
-                                validateAuthenticationResult.getInGameProfile().getId().toString()
-                        )
-                );
-                GameProfile finalProfile = validateAuthenticationResult.getInGameProfile();
-                core.getPlayerHandler().getLoginCache().put(finalProfile.getId(), new PlayerHandler.Entry(
-                        baseServiceAuthenticationResult.getResponse(),
-                        baseServiceAuthenticationResult.getServiceConfig(),
-                        System.currentTimeMillis()
-                ));
-                return LoginAuthResult.ofAllowed(baseServiceAuthenticationResult, validateAuthenticationResult, finalProfile);
+            hasJoined = yggdrasilAuthenticationService.hasJoinedAsync(username, serverId, ip);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(handleYggdrasilError(e));
+        }
+        return hasJoined.handle((result, throwable) -> {
+            if (throwable != null) {
+                return CompletableFuture.completedFuture(handleYggdrasilError(unwrap(throwable)));
             }
-            return LoginAuthResult.ofDisallowedByValidateAuthenticator(baseServiceAuthenticationResult, validateAuthenticationResult, validateAuthenticationResult.getDisallowedMessage());
+            LoginAuthResult disallowed = checkYggdrasilResult(result);
+            if (disallowed != null) return CompletableFuture.completedFuture(disallowed);
+            return checkInAsync(result);
+        }).thenCompose(f -> f);
+    }
+
+    // 按验证结果记录耗时
+    private void recordAuth(LoginAuthResult result, long start) {
+        String label = result == null ? "ERROR" : result.getResult().name();
+        core.getMetricsRegistry().getAuthLatency().get(label).recordSince(start);
+    }
+
+    // 返回 null 表示 HasJoined 验证通过
+    private LoginAuthResult checkYggdrasilResult(YggdrasilAuthenticationResult yggdrasilAuthenticationResult) {
+        if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.NO_SERVICE) {
+            return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_failed_no_yggdrasil_service"));
+        }
+        if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
+            return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_server_down"));
+        }
+        if (yggdrasilAuthenticationResult.getReason() == YggdrasilAuthenticationResult.Reason.VALIDATION_FAILED) {
+            return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_validation_failed"));
+        }
+        if (yggdrasilAuthenticationResult.getReason() != YggdrasilAuthenticationResult.Reason.ALLOWED ||
+                yggdrasilAuthenticationResult.getResponse() == null ||
+                yggdrasilAuthenticationResult.getServiceConfig().getId() == -1) {
+            return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(yggdrasilAuthenticationResult, core.getLanguageHandler().getMessage("auth_yggdrasil_failed_unknown"));
+        }
+        return null;
+    }
+
+    private LoginAuthResult handleYggdrasilError(Throwable e) {
+        LoggerProvider.getLogger().error("An exception occurred while processing the hasJoined request.", e);
+        return LoginAuthResult.ofDisallowedByYggdrasilAuthenticator(null, core.getLanguageHandler().getMessage("auth_yggdrasil_error"));
+    }
+
+    public LoginAuthResult checkIn(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
+        try {
+            return handleValidateResult(baseServiceAuthenticationResult, validateAuthenticationService.checkIn(baseServiceAuthenticationResult));
         } catch (Exception e) {
-            LoggerProvider.getLogger().error("An exception occurred while processing the validation request.", e);
-            return LoginAuthResult.ofDisallowedByValidateAuthenticator(baseServiceAuthenticationResult, null, core.getLanguageHandler().getMessage("auth_validate_error"));
+            return handleValidateError(baseServiceAuthenticationResult, e);
         }
     }
+
+    public CompletableFuture<LoginAuthResult> checkInAsync(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
+        CompletableFuture<ValidateAuthenticationResult> checkIn;
+        try {
+            checkIn = validateAuthenticationService.checkInAsync(baseServiceAuthenticationResult);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(handleValidateError(baseServiceAuthenticationResult, e));
+        }
+        return checkIn.handle((validateAuthenticationResult, throwable) -> {
+            if (throwable != null) return handleValidateError(baseServiceAuthenticationResult, unwrap(throwable));
+            try {
+                return handleValidateResult(baseServiceAuthenticationResult, validateAuthenticationResult);
+            } catch (Exception e) {
+                return handleValidateError(baseServiceAuthenticationResult, e);
+            }
+        });
+    }
+
+    private LoginAuthResult handleValidateResult(BaseServiceAuthenticationResult baseServiceAuthenticationResult, ValidateAuthenticationResult validateAuthenticationResult) {
+        if (validateAuthenticationResult.getReason() == ValidateAuthenticationResult.Reason.ALLOWED) {
+            LoggerProvider.getLogger().info(
+                    String.format("%s(uuid: %s) from authentication service %s(yid: %d) has been authenticated, profile redirected to %s(uuid: %s).",
+                            baseServiceAuthenticationResult.getResponse().getName(),
+                            baseServiceAuthenticationResult.getResponse().getId().toString(),
+                            baseServiceAuthenticationResult.getServiceConfig().getName(),
+                            baseServiceAuthenticationResult.getServiceConfig().getId(),
+                            validateAuthenticationResult.getInGameProfile().getName(),
+                            validateAuthenticationResult.getInGameProfile().getId().toString()
+                    )
+            );
+            GameProfile finalProfile = validateAuthenticationResult.getInGameProfile();
+            core.getPlayerHandler().getLoginCacheStore().put(finalProfile.getId(), new PlayerHandler.Entry(
+                    baseServiceAuthenticationResult.getResponse(),
+                    baseServiceAuthenticationResult.getServiceConfig(),
+                    System.currentTimeMillis()
+            ));
+            return LoginAuthResult.ofAllowed(baseServiceAuthenticationResult, validateAuthenticationResult, finalProfile);
+        }
+        return LoginAuthResult.ofDisallowedByValidateAuthenticator(baseServiceAuthenticationResult, validateAuthenticationResult, validateAuthenticationResult.getDisallowedMessage());
+    }
+
+    private LoginAuthResult handleValidateError(BaseServiceAuthenticationResult baseServiceAuthenticationResult, Throwable e) {
+        LoggerProvider.getLogger().error("An exception occurred while processing the validation request.", e);
+        return LoginAuthResult.ofDisallowedByValidateAuthenticator(baseServiceAuthenticationResult, null, core.getLanguageHandler().getMessage("auth_validate_error"));
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) return throwable.getCause();
+        return throwable;
+    }
 }
@@ -0,0 +1,10 @@
+package moe.caa.multilogin.core.auth.service.yggdrasil;
+
+/**
+ * 验证服务处于熔断状态，请求被跳过
+ */
+public class CircuitOpenException extends Exception {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import moe.caa.multilogin.api.auth.GameProfile;
 import moe.caa.multilogin.api.util.Pair;
 import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
+import moe.caa.multilogin.flows.workflows.CancellableContext;
+import moe.caa.multilogin.flows.workflows.CancellationToken;
 
 import java.util.Map;
 import java.util.Set;
@@ -14,7 +16,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * HasJoined 验证上下文
  */
 @Data
-public class HasJoinedContext {
+public class HasJoinedContext implements CancellableContext {
     private final String username;
     private final String serverId;
     private final String ip;
@@ -28,6 +30,9 @@ public class HasJoinedContext {
     // 存放没有通过验证的
     private final Set<Integer> authenticationFailed = ConcurrentHashMap.newKeySet();
 
+    // 有验证服务通过后取消其余请求
+    private final CancellationToken cancellationToken = new CancellationToken();
+
     protected HasJoinedContext(String username, String serverId, String ip) {
         this.username = username;
         this.serverId = serverId;
@@ -0,0 +1,153 @@
+package moe.caa.multilogin.core.auth.service.yggdrasil;
+
+import lombok.Getter;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.core.configuration.CircuitBreakerConfig;
+import moe.caa.multilogin.core.main.MultiCore;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 验证服务熔断器
+ * 连续失败达到阈值后熔断，熔断期间直接跳过该验证服务，到期后放行一个探测请求决定是否恢复
+ */
+public class ServiceCircuitBreaker {
+    private final MultiCore core;
+    // serviceId \ Circuit
+    private final Map<Integer, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public ServiceCircuitBreaker(MultiCore core) {
+        this.core = core;
+    }
+
+    /**
+     * 尝试放行一次对验证服务的请求
+     *
+     * @param serviceId 验证服务 ID
+     * @return 是否允许请求
+     */
+    public boolean tryAcquire(int serviceId) {
+        CircuitBreakerConfig config = core.getPluginConfig().getCircuitBreakerConfig();
+        if (!config.isEnable()) return true;
+        return getCircuit(serviceId).tryAcquire(serviceId);
+    }
+
+    /**
+     * 记录一次成功的请求
+     */
+    public void recordSuccess(int serviceId) {
+        getCircuit(serviceId).recordSuccess(serviceId);
+    }
+
+    /**
+     * 记录一次失败的请求
+     */
+    public void recordFailure(int serviceId) {
+        CircuitBreakerConfig config = core.getPluginConfig().getCircuitBreakerConfig();
+        if (!config.isEnable()) return;
+        getCircuit(serviceId).recordFailure(serviceId, config);
+    }
+
+    /**
+     * 记录一次被取消的请求，探测请求被取消时允许下一个请求继续探测
+     */
+    public void recordCancelled(int serviceId) {
+        getCircuit(serviceId).recordCancelled();
+    }
+
+    /**
+     * 获得所有验证服务的熔断状态
+     */
+    public Map<Integer, Circuit> getCircuits() {
+        return Collections.unmodifiableMap(circuits);
+    }
+
+    private Circuit getCircuit(int serviceId) {
+        return circuits.computeIfAbsent(serviceId, k -> new Circuit());
+    }
+
+    public enum State {
+        // 正常
+        CLOSED,
+        // 熔断中
+        OPEN,
+        // 探测中
+        HALF_OPEN
+    }
+
+    /**
+     * 一个验证服务的熔断状态
+     */
+    public static class Circuit {
+        @Getter
+        private volatile State state = State.CLOSED;
+        @Getter
+        private volatile int consecutiveFailures = 0;
+        private volatile long openUntil = 0;
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder opened = new LongAdder();
+
+        private synchronized boolean tryAcquire(int serviceId) {
+            if (state == State.CLOSED) return true;
+            if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                state = State.HALF_OPEN;
+                LoggerProvider.getLogger().debug(String.format("Probing the yggdrasil service whose ID is %d.", serviceId));
+                return true;
+            }
+            skipped.increment();
+            return false;
+        }
+
+        private synchronized void recordSuccess(int serviceId) {
+            if (state != State.CLOSED) {
+                LoggerProvider.getLogger().info(String.format("The yggdrasil service whose ID is %d has recovered.", serviceId));
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        private synchronized void recordFailure(int serviceId, CircuitBreakerConfig config) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= config.getFailureThreshold())) {
+                if (state == State.CLOSED) {
+                    LoggerProvider.getLogger().warn(String.format("The yggdrasil service whose ID is %d failed %d times in a row and will be skipped for %d ms.",
+                            serviceId, consecutiveFailures, config.getOpenDuration()));
+                }
+                state = State.OPEN;
+                openUntil = System.currentTimeMillis() + config.getOpenDuration();
+                opened.increment();
+            }
+        }
+
+        private synchronized void recordCancelled() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openUntil = 0;
+            }
+        }
+
+        /**
+         * 熔断剩余时间，单位毫秒
+         */
+        public long getRemainingOpenMillis() {
+            return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+        }
+
+        /**
+         * 因熔断被跳过的请求数
+         */
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        /**
+         * 进入熔断的次数
+         */
+        public long getOpened() {
+            return opened.sum();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package moe.caa.multilogin.core.auth.service.yggdrasil;
+
+import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 验证服务响应统计
+ * 以指数加权移动平均记录每个验证服务的响应耗时和失败率
+ */
+public class ServiceLatencyTracker {
+    // 新样本的权重
+    private static final double ALPHA = 0.2;
+
+    // serviceId \ Stats
+    private final Map<Integer, Stats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次验证服务成功响应
+     *
+     * @param serviceId 验证服务 ID
+     * @param millis    响应耗时
+     */
+    public void recordSuccess(int serviceId, long millis) {
+        statsMap.computeIfAbsent(serviceId, k -> new Stats()).record(millis, false);
+    }
+
+    /**
+     * 记录一次验证服务请求失败
+     *
+     * @param serviceId 验证服务 ID
+     * @param millis    失败前的耗时
+     */
+    public void recordFailure(int serviceId, long millis) {
+        statsMap.computeIfAbsent(serviceId, k -> new Stats()).record(millis, true);
+    }
+
+    /**
+     * 获得验证服务近期的成功概率，没有样本时为 1
+     */
+    public double getSuccessProbability(int serviceId) {
+        Stats stats = statsMap.get(serviceId);
+        return stats == null ? 1 : stats.getSuccessProbability();
+    }
+
+    /**
+     * 获得验证服务近期响应耗时的 p95 估计值，没有样本时为 -1
+     */
+    public long getP95(int serviceId) {
+        Stats stats = statsMap.get(serviceId);
+        return stats == null ? -1 : stats.getP95();
+    }
+
+    /**
+     * 获得验证服务近期的平均响应耗时，没有样本时为 -1
+     */
+    public long getAverage(int serviceId) {
+        Stats stats = statsMap.get(serviceId);
+        return stats == null ? -1 : stats.getAverage();
+    }
+
+    /**
+     * 按近期成功概率从高到低、平均耗时从低到高排序验证服务
+     */
+    public List<BaseYggdrasilServiceConfig> sort(Collection<BaseYggdrasilServiceConfig> configs) {
+        List<BaseYggdrasilServiceConfig> list = new ArrayList<>(configs);
+        list.sort(Comparator.<BaseYggdrasilServiceConfig>comparingDouble(c -> -getSuccessProbability(c.getId()))
+                .thenComparingLong(c -> getAverage(c.getId())));
+        return list;
+    }
+
+    private static class Stats {
+        private boolean sampled = false;
+        private double latency;
+        private double variance;
+        private double failure;
+
+        private synchronized void record(long millis, boolean failed) {
+            if (!sampled) {
+                sampled = true;
+                latency = millis;
+                variance = 0;
+                failure = failed ? 1 : 0;
+                return;
+            }
+            double diff = millis - latency;
+            latency += ALPHA * diff;
+            variance = (1 - ALPHA) * (variance + ALPHA * diff * diff);
+            failure += ALPHA * ((failed ? 1 : 0) - failure);
+        }
+
+        private synchronized double getSuccessProbability() {
+            return 1 - failure;
+        }
+
+        private synchronized long getAverage() {
+            return (long) latency;
+        }
+
+        // 假设耗时近似正态分布
+        private synchronized long getP95() {
+            return (long) (latency + 1.645 * Math.sqrt(variance));
+        }
+    }
+}
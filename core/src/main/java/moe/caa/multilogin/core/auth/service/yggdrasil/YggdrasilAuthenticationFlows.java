@@ -1,19 +1,23 @@
 package moe.caa.multilogin.core.auth.service.yggdrasil;
 
+import com.google.gson.stream.JsonReader;
 import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.api.logger.LoggerProvider;
 import moe.caa.multilogin.api.util.Pair;
 import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
 import moe.caa.multilogin.core.main.MultiCore;
-import moe.caa.multilogin.core.ohc.LoggingInterceptor;
-import moe.caa.multilogin.core.ohc.RetryInterceptor;
 import moe.caa.multilogin.flows.workflows.BaseFlows;
+import moe.caa.multilogin.flows.workflows.CancellationToken;
 import moe.caa.multilogin.flows.workflows.Signal;
 import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 一个工作流，进行对 Yggd 的 hasJoined 访问
@@ -24,9 +28,14 @@ public class YggdrasilAuthenticationFlows extends BaseFlows<HasJoinedContext> {
     private final String serverId;
     private final String ip;
     private final BaseYggdrasilServiceConfig config;
+    private final ServiceLatencyTracker latencyTracker;
+    private final ServiceCircuitBreaker circuitBreaker;
 
-    protected YggdrasilAuthenticationFlows(MultiCore core, String username, String serverId, String ip, BaseYggdrasilServiceConfig config) {
+    protected YggdrasilAuthenticationFlows(MultiCore core, String username, String serverId, String ip, BaseYggdrasilServiceConfig config,
+                                           ServiceLatencyTracker latencyTracker, ServiceCircuitBreaker circuitBreaker) {
         this.core = core;
+        this.latencyTracker = latencyTracker;
+        this.circuitBreaker = circuitBreaker;
         this.username = username;
         this.serverId = serverId;
         this.ip = ip;
@@ -35,56 +44,162 @@ public class YggdrasilAuthenticationFlows extends BaseFlows<HasJoinedContext> {
 
     // 进行验证
     public GameProfile call() throws Exception {
+        return call0(buildRequest(), null);
+    }
+
+    // 构建请求
+    private Request buildRequest() {
         String url = config.generateAuthURL(username, serverId, ip);
 
         if (config.getHttpRequestMethod() == BaseYggdrasilServiceConfig.HttpRequestMethod.GET) {
-            return call0(config, new Request.Builder()
+            return new Request.Builder()
                     .get()
                     .url(url)
                     .header("User-Agent", core.getHttpRequestHeaderUserAgent())
-                    .build());
+                    .build();
         } else if (config.getHttpRequestMethod() == BaseYggdrasilServiceConfig.HttpRequestMethod.POST) {
-            return call0(config, new Request.Builder()
+            return new Request.Builder()
                     .post(RequestBody.create(
                             config.generateAuthPostContent(username, serverId, ip).getBytes(StandardCharsets.UTF_8)
                     ))
                     .url(url)
                     .header("User-Agent", core.getHttpRequestHeaderUserAgent())
                     .header("Content-Type", "application/json")
-                    .build());
+                    .build();
         }
         throw new UnsupportedOperationException("HttpRequestMethod");
     }
 
-
-    private GameProfile call0(BaseYggdrasilServiceConfig config, Request request) throws IOException {
-        OkHttpClient client = new OkHttpClient.Builder()
-                .addInterceptor(new RetryInterceptor(config.getRetry(), config.getRetryDelay()))
-                .addInterceptor(new LoggingInterceptor())
-                .writeTimeout(Duration.ofMillis(config.getTimeout()))
-                .readTimeout(Duration.ofMillis(config.getTimeout()))
-                .connectTimeout(Duration.ofMillis(config.getTimeout()))
-                .proxy(config.getAuthProxy().getProxy())
-                .proxyAuthenticator(config.getAuthProxy().getProxyAuthenticator())
-                .build();
+    private GameProfile call0(Request request, CancellationToken token) throws IOException {
+        OkHttpClient client = core.getHttpClientRegistry().getYggdrasilClient(config);
         Call call = client.newCall(request);
+        AtomicBoolean done = new AtomicBoolean(false);
+        watchCancellation(token, call, done);
         try (Response execute = call.execute()) {
-            return core.getGson().fromJson(Objects.requireNonNull(execute.body()).string(), GameProfile.class);
+            return readProfile(execute);
+        } finally {
+            done.set(true);
+        }
+    }
+
+    // 令牌被取消时取消尚未完成的请求
+    private void watchCancellation(CancellationToken token, Call call, AtomicBoolean done) {
+        if (token == null) return;
+        token.onCancel(() -> {
+            if (done.get()) return;
+            core.getHttpClientRegistry().cancel(call);
+            LoggerProvider.getLogger().debug(String.format("Cancelled the hasJoined request to yggdrasil service %s(yid: %d).", config.getName(), config.getId()));
+        });
+    }
+
+    // 直接从响应体流中解析，不生成中间字符串
+    private GameProfile readProfile(Response response) throws IOException {
+        try (JsonReader reader = new JsonReader(Objects.requireNonNull(response.body()).charStream())) {
+            return core.getGson().fromJson(reader, GameProfile.class);
         }
     }
 
+    /**
+     * 异步进行验证，不占用等待线程
+     */
+    public CompletableFuture<GameProfile> callAsync(CancellationToken token) {
+        CompletableFuture<GameProfile> future = new CompletableFuture<>();
+        Request request;
+        try {
+            request = buildRequest();
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        Call newCall = core.getHttpClientRegistry().getYggdrasilClient(config).newCall(request);
+        AtomicBoolean done = new AtomicBoolean(false);
+        newCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                done.set(true);
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    future.complete(readProfile(response));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    done.set(true);
+                }
+            }
+        });
+        watchCancellation(token, newCall, done);
+        return future;
+    }
+
+    /**
+     * 异步加工，结果与 run 一致地写入上下文
+     */
+    public CompletableFuture<Signal> runAsync(HasJoinedContext hasJoinedContext) {
+        if (!acquire(hasJoinedContext)) return CompletableFuture.completedFuture(Signal.TERMINATED);
+        long start = System.nanoTime();
+        return callAsync(hasJoinedContext.getCancellationToken()).handle((call, throwable) -> {
+            if (throwable != null) {
+                handleFailure(hasJoinedContext, throwable, start);
+                return Signal.TERMINATED;
+            }
+            handleSuccess(start);
+            return handleResponse(hasJoinedContext, call);
+        });
+    }
+
+    // 熔断中的验证服务直接跳过
+    private boolean acquire(HasJoinedContext hasJoinedContext) {
+        if (circuitBreaker.tryAcquire(config.getId())) return true;
+        hasJoinedContext.getServiceUnavailable().put(config, new CircuitOpenException(
+                String.format("The circuit of yggdrasil service %s(yid: %d) is open.", config.getName(), config.getId())));
+        return false;
+    }
+
+    private void handleSuccess(long start) {
+        long elapsed = System.nanoTime() - start;
+        core.getMetricsRegistry().getYggdrasilLatency().get(config.getName()).record(elapsed);
+        latencyTracker.recordSuccess(config.getId(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        circuitBreaker.recordSuccess(config.getId());
+    }
+
+    // 已被取消的请求不算作服务不可用
+    private void handleFailure(HasJoinedContext hasJoinedContext, Throwable throwable, long start) {
+        if (hasJoinedContext.getCancellationToken().isCancelled()) {
+            circuitBreaker.recordCancelled(config.getId());
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        core.getMetricsRegistry().getYggdrasilLatency().get(config.getName()).record(elapsed);
+        core.getMetricsRegistry().getYggdrasilFailures().get(config.getName()).increment();
+        latencyTracker.recordFailure(config.getId(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        circuitBreaker.recordFailure(config.getId());
+        hasJoinedContext.getServiceUnavailable().put(config, throwable);
+    }
+
+    private Signal handleResponse(HasJoinedContext hasJoinedContext, GameProfile call) {
+        if (call != null && call.getId() != null) {
+            hasJoinedContext.getResponse().set(new Pair<>(call, (config)));
+            return Signal.PASSED;
+        }
+        return Signal.TERMINATED;
+    }
+
     @Override
     public Signal run(HasJoinedContext hasJoinedContext) {
+        if (!acquire(hasJoinedContext)) return Signal.TERMINATED;
+        long start = System.nanoTime();
+        GameProfile response;
         try {
-            GameProfile call = call();
-            if (call != null && call.getId() != null) {
-                hasJoinedContext.getResponse().set(new Pair<>(call, (config)));
-                return Signal.PASSED;
-            }
-            return Signal.TERMINATED;
+            response = call0(buildRequest(), hasJoinedContext.getCancellationToken());
         } catch (Throwable e) {
-            hasJoinedContext.getServiceUnavailable().put(config, e);
+            handleFailure(hasJoinedContext, e, start);
             return Signal.TERMINATED;
         }
+        handleSuccess(start);
+        return handleResponse(hasJoinedContext, response);
     }
 }
@@ -1,5 +1,6 @@
 package moe.caa.multilogin.core.auth.service.yggdrasil;
 
+import lombok.Getter;
 import moe.caa.multilogin.api.logger.LoggerProvider;
 import moe.caa.multilogin.api.util.ValueUtil;
 import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
@@ -10,30 +11,155 @@ import moe.caa.multilogin.flows.workflows.Signal;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * HasJoined 集中处理程序
  */
 public class YggdrasilAuthenticationService {
+    // 没有响应样本时使用的对冲延迟
+    private static final long DEFAULT_HEDGE_DELAY = 1500;
+
     private final MultiCore core;
+    @Getter
+    private final ServiceLatencyTracker latencyTracker = new ServiceLatencyTracker();
+    @Getter
+    private final ServiceCircuitBreaker circuitBreaker;
 
     public YggdrasilAuthenticationService(MultiCore core) {
         this.core = core;
+        this.circuitBreaker = new ServiceCircuitBreaker(core);
     }
 
     /**
      * 开始验证
      */
     public YggdrasilAuthenticationResult hasJoined(String username, String serverId, String ip) throws SQLException {
-        final Set<Integer> ids = core.getPluginConfig().getServiceIdMap().entrySet().stream()
-                .filter(e -> e.getValue() instanceof BaseYggdrasilServiceConfig)
-                .map(Map.Entry::getKey).collect(Collectors.toSet());
+        final Set<Integer> ids = getYggdrasilServiceIds();
         if (ids.size() == 0) return YggdrasilAuthenticationResult.ofNoService();
 
+        Set<Integer> primaries = selectPrimaries(username, ids);
+        Set<Integer> secondaries = selectSecondaries(username, ids, primaries);
 
-        // 主要的验证服务器ID表
-        // 在HasJoined验证时最先开始验证
+        boolean serverBreakdown = false;
+        if (primaries.size() != 0) {
+            YggdrasilAuthenticationResult result = hasJoined0(username, serverId, ip, primaries);
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED) return result;
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
+                serverBreakdown = true;
+            }
+        }
+        if (secondaries.size() != 0) {
+            YggdrasilAuthenticationResult result = hasJoined0(username, serverId, ip, secondaries);
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED) return result;
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
+                serverBreakdown = true;
+            }
+        }
+        if (serverBreakdown) return YggdrasilAuthenticationResult.ofServerBreakdown();
+        return YggdrasilAuthenticationResult.ofValidationFailed();
+    }
+
+    /**
+     * 异步开始验证
+     * 数据库查询在数据库线程池中完成，网络请求使用 OkHttp 异步调用，不阻塞任何线程等待
+     */
+    public CompletableFuture<YggdrasilAuthenticationResult> hasJoinedAsync(String username, String serverId, String ip) {
+        final Set<Integer> ids = getYggdrasilServiceIds();
+        if (ids.size() == 0) return CompletableFuture.completedFuture(YggdrasilAuthenticationResult.ofNoService());
+
+        CompletableFuture<Set<Integer>> primariesFuture;
+        if (ids.size() == 1) {
+            primariesFuture = CompletableFuture.completedFuture(Collections.singleton(ids.iterator().next()));
+        } else {
+            primariesFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return selectPrimaries(username, ids);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, core.getSqlManager().getAsyncExecutor());
+        }
+
+        return primariesFuture.thenCompose(primaries -> {
+            Set<Integer> secondaries = selectSecondaries(username, ids, primaries);
+            if (primaries.size() == 0) return hasJoinedAsync0(new HasJoinedContext(username, serverId, ip), secondaries);
+            if (secondaries.size() == 0) return hasJoinedAsync0(new HasJoinedContext(username, serverId, ip), primaries);
+            return hedge(username, serverId, ip, primaries, secondaries);
+        });
+    }
+
+    // 先请求主要验证服务，超过对冲延迟或主要验证服务全部失败后再请求次要验证服务
+    private CompletableFuture<YggdrasilAuthenticationResult> hedge(String username, String serverId, String ip, Set<Integer> primaries, Set<Integer> secondaries) {
+        final HasJoinedContext primaryContext = new HasJoinedContext(username, serverId, ip);
+        final HasJoinedContext secondaryContext = new HasJoinedContext(username, serverId, ip);
+        CompletableFuture<YggdrasilAuthenticationResult> primaryFuture = hasJoinedAsync0(primaryContext, primaries);
+
+        long hedgeDelay = getHedgeDelay(primaries);
+        CompletableFuture<Void> launch = new CompletableFuture<>();
+        primaryFuture.whenComplete((r, t) -> launch.complete(null));
+        CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS).execute(() -> launch.complete(null));
+
+        CompletableFuture<YggdrasilAuthenticationResult> secondaryFuture = launch.thenCompose(v -> {
+            YggdrasilAuthenticationResult primaryResult = primaryFuture.getNow(null);
+            // 主要验证服务已通过，不再请求次要验证服务，此结果不会被采用
+            if (primaryResult != null && primaryResult.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED) {
+                return CompletableFuture.completedFuture(YggdrasilAuthenticationResult.ofValidationFailed());
+            }
+            if (primaryResult == null) {
+                LoggerProvider.getLogger().debug(String.format("%s's primary yggdrasil services did not respond in %d ms, hedging to secondaries.", username, hedgeDelay));
+            }
+            return hasJoinedAsync0(secondaryContext, secondaries);
+        });
+
+        CompletableFuture<YggdrasilAuthenticationResult> future = new CompletableFuture<>();
+        primaryFuture.thenAccept(result -> {
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED && future.complete(result)) {
+                secondaryContext.getCancellationToken().cancel();
+            }
+        });
+        secondaryFuture.thenAccept(result -> {
+            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED && future.complete(result)) {
+                primaryContext.getCancellationToken().cancel();
+            }
+        });
+        primaryFuture.thenCombine(secondaryFuture, (primaryResult, secondaryResult) -> {
+            if (primaryResult.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN
+                    || secondaryResult.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
+                return YggdrasilAuthenticationResult.ofServerBreakdown();
+            }
+            return YggdrasilAuthenticationResult.ofValidationFailed();
+        }).whenComplete((result, throwable) -> {
+            if (throwable != null) future.completeExceptionally(throwable);
+            else future.complete(result);
+        });
+        return future;
+    }
+
+    // 对冲延迟，未配置时取主要验证服务近期耗时 p95 的最大值
+    private long getHedgeDelay(Set<Integer> primaries) {
+        long configured = core.getPluginConfig().getHedgeDelay();
+        if (configured >= 0) return configured;
+        long delay = -1;
+        for (Integer id : primaries) {
+            delay = Math.max(delay, latencyTracker.getP95(id));
+        }
+        return delay < 0 ? DEFAULT_HEDGE_DELAY : delay;
+    }
+
+    private Set<Integer> getYggdrasilServiceIds() {
+        return core.getPluginConfig().getServiceIdMap().entrySet().stream()
+                .filter(e -> e.getValue() instanceof BaseYggdrasilServiceConfig)
+                .map(Map.Entry::getKey).collect(Collectors.toSet());
+    }
+
+    // 主要的验证服务器ID表
+    // 在HasJoined验证时最先开始验证
+    private Set<Integer> selectPrimaries(String username, Set<Integer> ids) throws SQLException {
         Set<Integer> primaries = new HashSet<>();
 
         // 如果只添加了一个验证服务器，那么就直接把它置为 primary
@@ -50,9 +176,12 @@ public class YggdrasilAuthenticationService {
                 primaries.addAll(core.getSqlManager().getUserDataTable().getOnlineServiceIds(inGameUUID));
             }
         }
+        return primaries;
+    }
 
-        // 次要的验证服务器ID表
-        // 在HasJoined验证时最后开始验证
+    // 次要的验证服务器ID表
+    // 在HasJoined验证时最后开始验证
+    private Set<Integer> selectSecondaries(String username, Set<Integer> ids, Set<Integer> primaries) {
         Set<Integer> secondaries = ids.stream().filter(i -> !primaries.contains(i)).collect(Collectors.toSet());
 
         LoggerProvider.getLogger().debug(String.format(
@@ -60,27 +189,10 @@ public class YggdrasilAuthenticationService {
                 ValueUtil.join(", ", ", ", primaries),
                 ValueUtil.join(", ", ", ", secondaries)
         ));
-
-        boolean serverBreakdown = false;
-        if (primaries.size() != 0) {
-            YggdrasilAuthenticationResult result = hasJoined0(username, serverId, ip, primaries);
-            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED) return result;
-            if (result.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
-                serverBreakdown = true;
-            }
-        }
-        if (secondaries.size() != 0) {
-            YggdrasilAuthenticationResult result = hasJoined0(username, serverId, ip, secondaries);
-            if (result.getReason() == YggdrasilAuthenticationResult.Reason.ALLOWED) return result;
-            if (result.getReason() == YggdrasilAuthenticationResult.Reason.SERVER_BREAKDOWN) {
-                serverBreakdown = true;
-            }
-        }
-        if (serverBreakdown) return YggdrasilAuthenticationResult.ofServerBreakdown();
-        return YggdrasilAuthenticationResult.ofValidationFailed();
+        return secondaries;
     }
 
-    private YggdrasilAuthenticationResult hasJoined0(String username, String serverId, String ip, Set<Integer> ids) {
+    private List<YggdrasilAuthenticationFlows> buildFlows(String username, String serverId, String ip, Set<Integer> ids) {
         Set<BaseYggdrasilServiceConfig> serviceConfigs = new HashSet<>();
         for (Integer id : ids) {
             BaseServiceConfig config = core.getPluginConfig().getServiceIdMap().get(id);
@@ -88,13 +200,42 @@ public class YggdrasilAuthenticationService {
                 serviceConfigs.add((BaseYggdrasilServiceConfig) config);
             }
         }
-        EntrustFlows<HasJoinedContext> flows = new EntrustFlows<>(serviceConfigs.stream()
-                .map(i -> new YggdrasilAuthenticationFlows(core, username, serverId, ip, i))
-                .collect(Collectors.toList())
-        );
+        // 近期成功率高、响应快的验证服务先发起请求
+        return latencyTracker.sort(serviceConfigs).stream()
+                .map(i -> new YggdrasilAuthenticationFlows(core, username, serverId, ip, i, latencyTracker, circuitBreaker))
+                .collect(Collectors.toList());
+    }
+
+    private YggdrasilAuthenticationResult hasJoined0(String username, String serverId, String ip, Set<Integer> ids) {
+        EntrustFlows<HasJoinedContext> flows = new EntrustFlows<>(new ArrayList<>(buildFlows(username, serverId, ip, ids)));
 
         final HasJoinedContext context = new HasJoinedContext(username, serverId, ip);
-        final Signal run = flows.run(context);
+        return conclude(context, flows.run(context));
+    }
+
+    // 第一个通过的验证服务完成结果，全部结束仍未通过时再汇总
+    private CompletableFuture<YggdrasilAuthenticationResult> hasJoinedAsync0(HasJoinedContext context, Set<Integer> ids) {
+        List<YggdrasilAuthenticationFlows> flows = buildFlows(context.getUsername(), context.getServerId(), context.getIp(), ids);
+        if (flows.size() == 0) return CompletableFuture.completedFuture(conclude(context, Signal.TERMINATED));
+
+        CompletableFuture<YggdrasilAuthenticationResult> future = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(flows.size());
+        for (YggdrasilAuthenticationFlows flow : flows) {
+            flow.runAsync(context).whenComplete((signal, throwable) -> {
+                if (signal == Signal.PASSED) {
+                    if (future.complete(conclude(context, Signal.PASSED))) {
+                        // 已有验证服务通过，取消其余请求
+                        context.getCancellationToken().cancel();
+                    }
+                } else if (remaining.decrementAndGet() == 0) {
+                    future.complete(conclude(context, Signal.TERMINATED));
+                }
+            });
+        }
+        return future;
+    }
+
+    private YggdrasilAuthenticationResult conclude(HasJoinedContext context, Signal run) {
         if (run == Signal.PASSED) {
             return YggdrasilAuthenticationResult.ofAllowed(
                     context.getResponse().get().getValue1(),
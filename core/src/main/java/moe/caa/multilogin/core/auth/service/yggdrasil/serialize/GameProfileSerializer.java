@@ -1,64 +1,103 @@
 package moe.caa.multilogin.core.auth.service.yggdrasil.serialize;
 
-import com.google.gson.*;
-import lombok.NoArgsConstructor;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import moe.caa.multilogin.api.auth.GameProfile;
 import moe.caa.multilogin.api.auth.Property;
 import moe.caa.multilogin.api.util.ValueUtil;
 import moe.caa.multilogin.core.auth.service.yggdrasil.UnmodifiableGameProfile;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * GameProfile 的 GSON 序列化程序
+ * 直接读写 JSON 流，不构建中间的 JsonElement 树
  */
-@NoArgsConstructor
-public class GameProfileSerializer implements JsonSerializer<GameProfile>, JsonDeserializer<GameProfile> {
+public class GameProfileSerializer extends TypeAdapter<GameProfile> {
+    private final PropertySerializer propertySerializer;
+
+    public GameProfileSerializer(PropertySerializer propertySerializer) {
+        this.propertySerializer = propertySerializer;
+    }
 
     @Override
-    public GameProfile deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+    public GameProfile read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
         GameProfile ret = new GameProfile();
         HashMap<String, Property> propertyMap = new HashMap<>();
         ret.setPropertyMap(propertyMap);
-        if (json.isJsonObject()) {
-            JsonObject root = json.getAsJsonObject();
-            ret.setId(ValueUtil.getUuidOrNull(root.get("id").getAsString()));
-            if (root.has("name"))
-                ret.setName(root.get("name").getAsString());
-            JsonElement propertiesJsonElement = root.get("properties");
-            if (propertiesJsonElement != null) {
-                if (propertiesJsonElement.isJsonObject()) {
-                    JsonObject object = propertiesJsonElement.getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
-                        if (entry.getValue().isJsonArray()) {
-                            for (JsonElement ignored : entry.getValue().getAsJsonArray()) {
-                                propertyMap.put(entry.getKey(), context.deserialize(ignored, Property.class));
-                            }
-                        }
-                    }
-                } else if (propertiesJsonElement.isJsonArray()) {
-                    for (JsonElement element : propertiesJsonElement.getAsJsonArray()) {
-                        Property value = context.deserialize(element, Property.class);
-                        propertyMap.put(value.getName(), value);
-                    }
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (key) {
+                    case "id" -> ret.setId(ValueUtil.getUuidOrNull(in.nextString()));
+                    case "name" -> ret.setName(in.nextString());
+                    case "properties" -> readProperties(in, propertyMap);
+                    default -> in.skipValue();
                 }
             }
+            in.endObject();
+        } else {
+            in.skipValue();
         }
         return UnmodifiableGameProfile.unmodifiable(ret);
     }
 
+    private void readProperties(JsonReader in, Map<String, Property> propertyMap) throws IOException {
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                while (in.hasNext()) {
+                    propertyMap.put(name, propertySerializer.read(in));
+                }
+                in.endArray();
+            }
+            in.endObject();
+        } else if (in.peek() == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            while (in.hasNext()) {
+                Property value = propertySerializer.read(in);
+                propertyMap.put(value.getName(), value);
+            }
+            in.endArray();
+        } else {
+            in.skipValue();
+        }
+    }
+
     @Override
-    public JsonElement serialize(GameProfile src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject ret = new JsonObject();
-        ret.addProperty("id", src.getId().toString().replace("-", ""));
-        ret.addProperty("name", src.getName());
-        JsonArray propertiesJsonArray = new JsonArray();
-        ret.add("properties", propertiesJsonArray);
+    public void write(JsonWriter out, GameProfile src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(src.getId().toString().replace("-", ""));
+        out.name("name").value(src.getName());
+        out.name("properties");
+        out.beginArray();
         for (var entry : src.getPropertyMap().entrySet()) {
-            propertiesJsonArray.add(context.serialize(entry.getValue(), Property.class));
+            propertySerializer.write(out, entry.getValue());
         }
-        return ret;
+        out.endArray();
+        out.endObject();
     }
 }
@@ -1,36 +1,61 @@
 package moe.caa.multilogin.core.auth.service.yggdrasil.serialize;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import lombok.NoArgsConstructor;
 import moe.caa.multilogin.api.auth.Property;
 import moe.caa.multilogin.core.auth.service.yggdrasil.UnmodifiableGameProfile;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * Property 的 GSON 序列化程序
+ * 直接读写 JSON 流，不构建中间的 JsonElement 树
  */
 @NoArgsConstructor
-public class PropertySerializer implements JsonSerializer<Property>, JsonDeserializer<Property> {
+public class PropertySerializer extends TypeAdapter<Property> {
 
     @Override
-    public Property deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+    public Property read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
         Property ret = new Property();
-        if (json.isJsonObject()) {
-            JsonObject root = json.getAsJsonObject();
-            ret.setName(root.get("name").getAsString());
-            ret.setValue(root.get("value").getAsString());
-            if (root.has("signature")) ret.setSignature(root.get("signature").getAsString());
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (key) {
+                    case "name" -> ret.setName(in.nextString());
+                    case "value" -> ret.setValue(in.nextString());
+                    case "signature" -> ret.setSignature(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+        } else {
+            in.skipValue();
         }
         return UnmodifiableGameProfile.UnmodifiableProperty.unmodifiable(ret);
     }
 
     @Override
-    public JsonElement serialize(Property src, Type typeOfSrc, JsonSerializationContext context) {
-        var ret = new JsonObject();
-        ret.addProperty("name", src.getName());
-        ret.addProperty("value", src.getValue());
-        if (src.getSignature() != null) ret.addProperty("signature", src.getSignature());
-        return ret;
+    public void write(JsonWriter out, Property src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("name").value(src.getName());
+        out.name("value").value(src.getValue());
+        if (src.getSignature() != null) out.name("signature").value(src.getSignature());
+        out.endObject();
     }
 }
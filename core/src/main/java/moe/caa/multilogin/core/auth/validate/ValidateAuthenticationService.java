@@ -7,30 +7,43 @@ import moe.caa.multilogin.core.auth.validate.entry.InitialLoginDataFlows;
 import moe.caa.multilogin.core.auth.validate.entry.NameAllowedRegularCheckFlows;
 import moe.caa.multilogin.core.auth.validate.entry.WhitelistCheckFlows;
 import moe.caa.multilogin.core.main.MultiCore;
+import moe.caa.multilogin.core.metrics.LatencyHistogram;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
+import moe.caa.multilogin.core.metrics.TimedFlows;
+import moe.caa.multilogin.flows.ProcessingFailedException;
 import moe.caa.multilogin.flows.workflows.SequenceFlows;
 import moe.caa.multilogin.flows.workflows.Signal;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 游戏内验证集中处理程序
  */
 public class ValidateAuthenticationService {
+    // 等待上一个会话退出的最长时间
+    private static final long QUIT_WAIT_TIMEOUT = 1000;
     private final MultiCore core;
     private final SequenceFlows<ValidateContext> sequenceFlows;
 
     public ValidateAuthenticationService(MultiCore core) {
         this.core = core;
+        MetricsRegistry.Family<LatencyHistogram> latency = core.getMetricsRegistry().getValidateLatency();
         // 注意 flows 顺序不能乱
         this.sequenceFlows = new SequenceFlows<>(Arrays.asList(
                 // 登录记录
-                new InitialLoginDataFlows(core),
+                new TimedFlows<>(new InitialLoginDataFlows(core), latency),
                 // 名称正则检查
-                new NameAllowedRegularCheckFlows(core),
+                new TimedFlows<>(new NameAllowedRegularCheckFlows(core), latency),
                 // 白名单检查
-                new WhitelistCheckFlows(core),
+                new TimedFlows<>(new WhitelistCheckFlows(core), latency),
                 // 处理玩家的游戏内 UUID 和分配
-                new AssignInGameFlows(core)
+                new TimedFlows<>(new AssignInGameFlows(core), latency)
         ));
     }
 
@@ -39,12 +52,15 @@ public class ValidateAuthenticationService {
      */
     public ValidateAuthenticationResult checkIn(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
         ValidateContext context = new ValidateContext(baseServiceAuthenticationResult);
-        Signal run = sequenceFlows.run(context);
+        Signal run = runInTransaction(context);
         if (run == Signal.PASSED) {
             if (context.isNeedWait()) {
                 try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
+                    core.getPlayerHandler().awaitQuit(context.getInGameProfile().getId()).get(QUIT_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    LoggerProvider.getLogger().debug(String.format("The previous session of %s did not quit within %d milliseconds.",
+                            context.getInGameProfile().getId(), QUIT_WAIT_TIMEOUT));
+                } catch (InterruptedException | ExecutionException e) {
                     LoggerProvider.getLogger().debug(e);
                 }
             }
@@ -52,4 +68,46 @@ public class ValidateAuthenticationService {
         }
         return ValidateAuthenticationResult.ofDisallowed(context.getDisallowMessage());
     }
+
+    /**
+     * 异步开始游戏内验证
+     * 数据库操作在数据库线程池中进行，需要等待上一个会话退出时不占用线程
+     */
+    public CompletableFuture<ValidateAuthenticationResult> checkInAsync(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
+        ValidateContext context = new ValidateContext(baseServiceAuthenticationResult);
+        return CompletableFuture.supplyAsync(() -> runInTransaction(context), core.getSqlManager().getAsyncExecutor())
+                .thenCompose(run -> {
+                    if (run != Signal.PASSED) {
+                        return CompletableFuture.completedFuture(ValidateAuthenticationResult.ofDisallowed(context.getDisallowMessage()));
+                    }
+                    ValidateAuthenticationResult result = ValidateAuthenticationResult.ofAllowed(context.getInGameProfile());
+                    if (!context.isNeedWait()) return CompletableFuture.completedFuture(result);
+                    return core.getPlayerHandler().awaitQuit(context.getInGameProfile().getId())
+                            .completeOnTimeout(null, QUIT_WAIT_TIMEOUT, TimeUnit.MILLISECONDS)
+                            .thenApply(unused -> result);
+                });
+    }
+
+    // 一次登录的所有数据库读写在同一个连接的同一个事务中完成
+    private Signal runInTransaction(ValidateContext context) {
+        try (Connection connection = core.getSqlManager().getPool().getConnection()) {
+            connection.setAutoCommit(false);
+            context.setConnection(connection);
+            boolean committed = false;
+            try {
+                Signal run = sequenceFlows.run(context);
+                connection.commit();
+                committed = true;
+                return run;
+            } catch (Throwable e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                context.setConnection(null);
+                core.getSqlManager().getProfileCache().completeTransaction(connection, committed);
+            }
+        } catch (SQLException e) {
+            throw new ProcessingFailedException(e);
+        }
+    }
 }
@@ -2,8 +2,12 @@ package moe.caa.multilogin.core.auth.validate;
 
 import lombok.Data;
 import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.api.util.There;
 import moe.caa.multilogin.core.auth.service.BaseServiceAuthenticationResult;
 
+import java.sql.Connection;
+import java.util.UUID;
+
 /**
  * 游戏内验证消息上下文
  */
@@ -13,9 +17,15 @@ public class ValidateContext {
 
     private final GameProfile inGameProfile;
     private String disallowMessage;
+    // 该游戏内 UUID 的上一个会话仍在线，需要等待其退出
     private boolean needWait;
     private boolean onlineNameUpdated = false;
 
+    // 本次登录所使用的数据库连接，所有登录数据在同一个事务中读写
+    private Connection connection;
+    // 登录档案在数据库中的在线名称、游戏内 UUID 和白名单，新玩家为 null
+    private There<String, UUID, Boolean> userData;
+
 
     protected ValidateContext(BaseServiceAuthenticationResult baseServiceAuthenticationResult) {
         this.baseServiceAuthenticationResult = baseServiceAuthenticationResult;
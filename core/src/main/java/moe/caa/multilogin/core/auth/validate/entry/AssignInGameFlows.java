@@ -6,11 +6,15 @@ import moe.caa.multilogin.api.plugin.IPlayer;
 import moe.caa.multilogin.api.util.Pair;
 import moe.caa.multilogin.api.util.ValueUtil;
 import moe.caa.multilogin.core.auth.validate.ValidateContext;
+import moe.caa.multilogin.core.database.table.InGameProfileTableV3;
 import moe.caa.multilogin.core.main.MultiCore;
 import moe.caa.multilogin.flows.workflows.BaseFlows;
 import moe.caa.multilogin.flows.workflows.Signal;
 
+import java.sql.Connection;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -27,11 +31,11 @@ public class AssignInGameFlows extends BaseFlows<ValidateContext> {
     @Override
     public Signal run(ValidateContext validateContext) {
 
-        // 从数据库里面读登录档案的游戏内 UUID
-        UUID inGameUUID = core.getSqlManager().getUserDataTable().getInGameUUID(
-                validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId()
-        );
+        Connection connection = validateContext.getConnection();
+        InGameProfileTableV3 inGameProfileTable = core.getSqlManager().getInGameProfileTable();
+
+        // 登录档案的游戏内 UUID 已在读取用户数据时取出
+        UUID inGameUUID = validateContext.getUserData() == null ? null : validateContext.getUserData().getValue2();
 
         // 如果这个 UUID 不存在，表示是个预新玩家或是档案被清理的新玩家。这时需要分配个全新的身份卡给它。
         String loginName = validateContext.getBaseServiceAuthenticationResult().getResponse().getName();
@@ -40,32 +44,32 @@ public class AssignInGameFlows extends BaseFlows<ValidateContext> {
             inGameUUID = validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getInitUUID()
                     .generateUUID(validateContext.getBaseServiceAuthenticationResult().getResponse().getId(), loginName);
 
-            // 需要线程安全
-            synchronized (AssignInGameFlows.class) {
-                // 取没有被占用的 UUID
-                while (core.getSqlManager().getInGameProfileTable().dataExists(inGameUUID)) {
-                    LoggerProvider.getLogger().warn(String.format("UUID %s has been used and will take a random value.", inGameUUID.toString()));
-                    inGameUUID = UUID.randomUUID();
-                }
-                // 身份卡UUID数据被确定
-                // 更新数据
-                core.getSqlManager().getUserDataTable().setInGameUUID(
-                        validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                        validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId(),
-                        inGameUUID);
+            // 取没有被占用的 UUID，由数据库主键仲裁，并发登录和多个代理共用数据库时也不会重复
+            while (!inGameProfileTable.reserve(connection, inGameUUID)) {
+                LoggerProvider.getLogger().warn(String.format("UUID %s has been used and will take a random value.", inGameUUID.toString()));
+                inGameUUID = UUID.randomUUID();
             }
+            // 身份卡UUID数据被确定
+            // 更新数据
+            core.getSqlManager().getUserDataTable().setInGameUUID(connection,
+                    validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
+                    validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId(),
+                    null, inGameUUID);
         }
+        validateContext.setNeedWait(core.getPlugin().getRunServer().getPlayerManager().hasOnline(inGameUUID));
+
+        // 身份卡UUID数据存在，看看数据库中有没有对应的记录
+        Pair<UUID, String> profile = inGameProfileTable.get(connection, inGameUUID);
+        boolean exist = profile != null;
+        String username = exist ? profile.getValue2() : null;
         if (core.getPluginConfig().isAutoNameChange() && validateContext.isOnlineNameUpdated()) {
-            String username = core.getSqlManager().getInGameProfileTable().getUsername(inGameUUID);
             if (!ValueUtil.isEmpty(username)) {
-                core.getSqlManager().getInGameProfileTable().eraseUsername(username);
+                inGameProfileTable.eraseUsername(connection, username);
+                username = null;
             }
         }
 
-        // 身份卡UUID数据存在，看看数据库中有没有对应的记录
-        boolean exist = core.getSqlManager().getInGameProfileTable().dataExists(inGameUUID);
         if (exist) {
-            String username = core.getSqlManager().getInGameProfileTable().getUsername(inGameUUID);
             if (!ValueUtil.isEmpty(username)) {
                 validateContext.getInGameProfile().setId(inGameUUID);
                 validateContext.getInGameProfile().setName(username);
@@ -75,12 +79,17 @@ public class AssignInGameFlows extends BaseFlows<ValidateContext> {
 
         String fixName = loginName;
         if (core.getPluginConfig().isNameCorrect()) {
-            int i = 0;
             boolean modified = false;
-            UUID ownerUUID;
-            while ((ownerUUID = core.getSqlManager().getInGameProfileTable().getInGameUUIDIgnoreCase(fixName)) != null) {
-                if(ownerUUID.equals(inGameUUID)) break;
-                fixName = loginName + ++i;
+            UUID ownerUUID = inGameProfileTable.getInGameUUIDIgnoreCase(connection, loginName);
+            if (ownerUUID != null && !ownerUUID.equals(inGameUUID)) {
+                // 一次取出所有以登录名开头的已占用名称，在内存中找到最小的可用后缀
+                Map<String, UUID> occupied = inGameProfileTable.getUsernamesStartWith(connection, loginName);
+                String lowerCaseLoginName = loginName.toLowerCase(Locale.ROOT);
+                int i = 0;
+                do {
+                    ownerUUID = occupied.get(lowerCaseLoginName + ++i);
+                } while (ownerUUID != null && !ownerUUID.equals(inGameUUID));
+                fixName = loginName + i;
                 modified = true;
             }
             if(modified){
@@ -100,7 +109,7 @@ public class AssignInGameFlows extends BaseFlows<ValidateContext> {
         // Username 需要更新
         if (exist) {
             try {
-                core.getSqlManager().getInGameProfileTable().updateUsername(inGameUUID,
+                inGameProfileTable.updateUsername(connection, inGameUUID,
                         fixName);
                 validateContext.getInGameProfile().setId(inGameUUID);
                 validateContext.getInGameProfile().setName(fixName);
@@ -113,7 +122,7 @@ public class AssignInGameFlows extends BaseFlows<ValidateContext> {
             }
         } else {
             try {
-                core.getSqlManager().getInGameProfileTable().insertNewData(inGameUUID,
+                inGameProfileTable.insertNewData(connection, inGameUUID,
                         fixName);
                 validateContext.getInGameProfile().setId(inGameUUID);
                 validateContext.getInGameProfile().setName(fixName);
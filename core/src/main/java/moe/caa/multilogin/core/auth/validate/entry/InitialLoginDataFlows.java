@@ -1,12 +1,15 @@
 package moe.caa.multilogin.core.auth.validate.entry;
 
 import lombok.SneakyThrows;
+import moe.caa.multilogin.api.util.There;
 import moe.caa.multilogin.core.auth.validate.ValidateContext;
-import moe.caa.multilogin.core.database.table.UserDataTableV3;
+import moe.caa.multilogin.core.database.table.UserDataTableV4;
 import moe.caa.multilogin.core.main.MultiCore;
 import moe.caa.multilogin.flows.workflows.BaseFlows;
 import moe.caa.multilogin.flows.workflows.Signal;
 
+import java.util.UUID;
+
 public class InitialLoginDataFlows extends BaseFlows<ValidateContext> {
     private final MultiCore core;
 
@@ -17,29 +20,20 @@ public class InitialLoginDataFlows extends BaseFlows<ValidateContext> {
     @SneakyThrows
     @Override
     public Signal run(ValidateContext validateContext) {
-        UserDataTableV3 dataTable = core.getSqlManager().getUserDataTable();
-        if (!dataTable.dataExists(
-                validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId()
-        )) {
-            dataTable.insertNewData(
-                    validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                    validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId(),
-                    validateContext.getBaseServiceAuthenticationResult().getResponse().getName(),
-                    null
-            );
-        } else {
-            String currentName = dataTable.getOnlineName(validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                    validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId());
-            if(!validateContext.getBaseServiceAuthenticationResult().getResponse().getName().equals(currentName)){
-                dataTable.setOnlineName(
-                        validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                        validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId(),
-                        validateContext.getBaseServiceAuthenticationResult().getResponse().getName()
-                );
-                validateContext.setOnlineNameUpdated(true);
-            }
+        UserDataTableV4 dataTable = core.getSqlManager().getUserDataTable();
+        UUID onlineUUID = validateContext.getBaseServiceAuthenticationResult().getResponse().getId();
+        int serviceId = validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId();
+        String onlineName = validateContext.getBaseServiceAuthenticationResult().getResponse().getName();
 
+        // 一次查询取出后续步骤需要的全部数据
+        There<String, UUID, Boolean> userData = dataTable.get(validateContext.getConnection(), onlineUUID, serviceId);
+        validateContext.setUserData(userData);
+        if (userData == null) {
+            dataTable.insertNewData(validateContext.getConnection(), onlineUUID, serviceId, onlineName, null);
+        } else if (!onlineName.equals(userData.getValue1())) {
+            // 在线名称不影响本次登录，延迟写入
+            core.getSqlManager().getWriteBehindQueue().queueOnlineName(onlineUUID, serviceId, onlineName);
+            validateContext.setOnlineNameUpdated(true);
         }
         return Signal.PASSED;
     }
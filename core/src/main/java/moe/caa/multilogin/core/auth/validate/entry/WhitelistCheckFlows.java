@@ -7,6 +7,8 @@ import moe.caa.multilogin.flows.workflows.BaseFlows;
 import moe.caa.multilogin.flows.workflows.Signal;
 
 import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * 白名单检查器
@@ -22,17 +24,26 @@ public class WhitelistCheckFlows extends BaseFlows<ValidateContext> {
     @SneakyThrows
     @Override
     public Signal run(ValidateContext validateContext) {
-        boolean removed = core.getCacheWhitelistHandler().getCachedWhitelist().remove(validateContext.getBaseServiceAuthenticationResult().getResponse().getName().toLowerCase(Locale.ROOT));
+        UUID onlineUUID = validateContext.getBaseServiceAuthenticationResult().getResponse().getId();
+        int serviceId = validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId();
+        String name = validateContext.getBaseServiceAuthenticationResult().getResponse().getName().toLowerCase(Locale.ROOT);
+        Set<String> cachedWhitelist = core.getCacheWhitelistHandler().getCachedWhitelist();
+        boolean removed = cachedWhitelist.contains(name);
         if (removed) {
-            core.getSqlManager().getUserDataTable().setWhitelist(validateContext.getBaseServiceAuthenticationResult().getResponse().getId(), validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId(), true);
+            // 登录事务提交后才消耗缓存白名单并延迟写入，此时用户数据已提交，回滚时缓存白名单保留
+            // 本次登录直接视为拥有白名单
+            core.getSqlManager().getProfileCache().afterCommit(validateContext.getConnection(), () -> {
+                if (cachedWhitelist.remove(name)) {
+                    core.getSqlManager().getWriteBehindQueue().queueWhitelist(onlineUUID, serviceId, true);
+                }
+            });
         }
         // 如果没有开启白名单验证
         if (!validateContext.getBaseServiceAuthenticationResult().getServiceConfig().isWhitelist()) {
             return Signal.PASSED;
         }
         // 如果有白名单
-        if (core.getSqlManager().getUserDataTable().hasWhitelist(validateContext.getBaseServiceAuthenticationResult().getResponse().getId(),
-                validateContext.getBaseServiceAuthenticationResult().getServiceConfig().getId())) {
+        if (removed || (validateContext.getUserData() != null && validateContext.getUserData().getValue3())) {
             return Signal.PASSED;
         }
         // 踹了
@@ -16,7 +16,7 @@ import moe.caa.multilogin.api.util.ValueUtil;
 import moe.caa.multilogin.core.command.CommandHandler;
 import moe.caa.multilogin.core.command.UniversalCommandExceptionType;
 import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
-import moe.caa.multilogin.core.database.table.UserDataTableV3;
+import moe.caa.multilogin.core.database.table.UserDataTableV4;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -47,7 +47,7 @@ public class OnlineArgumentType implements ArgumentType<OnlineArgumentType.Onlin
         reader.skip();
         String nameOrUuid = StringArgumentType.readString(reader);
 
-        UserDataTableV3 dataTable = CommandHandler.getCore().getSqlManager().getUserDataTable();
+        UserDataTableV4 dataTable = CommandHandler.getCore().getSqlManager().getUserDataTable();
 
         UUID uuid = ValueUtil.getUuidOrNull(nameOrUuid);
         if (uuid == null) {
@@ -0,0 +1,70 @@
+package moe.caa.multilogin.core.command.commands;
+
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import moe.caa.multilogin.api.plugin.ISender;
+import moe.caa.multilogin.api.util.Pair;
+import moe.caa.multilogin.core.command.CommandHandler;
+import moe.caa.multilogin.core.command.Permissions;
+import moe.caa.multilogin.core.configuration.SkinRestorerQueueConfig;
+import moe.caa.multilogin.core.language.LanguageHandler;
+import moe.caa.multilogin.core.skinrestorer.SkinRestorerJob;
+import moe.caa.multilogin.core.skinrestorer.SkinRestorerQueue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * /MultiLogin skin * 指令处理程序
+ */
+public class MSkinCommand {
+    // 最多列出的任务数量
+    private static final int MAX_LISTED = 10;
+    private final CommandHandler handler;
+
+    public MSkinCommand(CommandHandler handler) {
+        this.handler = handler;
+    }
+
+    public LiteralArgumentBuilder<ISender> register(LiteralArgumentBuilder<ISender> literalArgumentBuilder) {
+        return literalArgumentBuilder.then(handler.literal("queue")
+                .requires(sender -> sender.hasPermission(Permissions.COMMAND_MULTI_LOGIN_SKIN_QUEUE))
+                .executes(this::executeQueue));
+    }
+
+    // /MultiLogin skin queue
+    private int executeQueue(CommandContext<ISender> context) {
+        SkinRestorerQueue queue = CommandHandler.getCore().getSkinRestorerHandler().getQueue();
+        SkinRestorerQueueConfig config = CommandHandler.getCore().getPluginConfig().getSkinRestorerQueueConfig();
+        LanguageHandler languageHandler = CommandHandler.getCore().getLanguageHandler();
+        List<SkinRestorerJob> pending = queue.getPending();
+        long now = System.currentTimeMillis();
+
+        String list = pending.stream().limit(MAX_LISTED).map(job -> languageHandler.getMessage("command_message_skin_queue_entry",
+                new Pair<>("url", job.getUrl()),
+                new Pair<>("model", job.getModel()),
+                new Pair<>("service_name", CommandHandler.getCore().getPlayerHandler().getServiceName(job.getServiceId())),
+                new Pair<>("service_id", job.getServiceId()),
+                new Pair<>("attempts", job.getAttempts()),
+                new Pair<>("delay", Math.max(0, job.getNotBefore() - now)),
+                new Pair<>("online", CommandHandler.getCore().getPlayerHandler().getInGameUUID(job.getOnlineUUID(), job.getServiceId()) != null)
+        )).collect(Collectors.joining(languageHandler.getMessage("command_message_skin_queue_delimiter")));
+        if (pending.size() > MAX_LISTED) {
+            list += languageHandler.getMessage("command_message_skin_queue_delimiter")
+                    + languageHandler.getMessage("command_message_skin_queue_more", new Pair<>("count", pending.size() - MAX_LISTED));
+        }
+
+        context.getSource().sendMessagePL(languageHandler.getMessage("command_message_skin_queue",
+                new Pair<>("size", pending.size()),
+                new Pair<>("capacity", config.getCapacity()),
+                new Pair<>("running", queue.getRunning()),
+                new Pair<>("tokens", queue.getTokenBucket() == null ? 0 : queue.getTokenBucket().getAvailable()),
+                new Pair<>("rate", config.getPermitsPerMinute()),
+                new Pair<>("completed", queue.getCompleted().sum()),
+                new Pair<>("failed", queue.getFailed().sum()),
+                new Pair<>("rejected", queue.getRejected().sum()),
+                new Pair<>("list", list)
+        ));
+        return 0;
+    }
+}
@@ -7,12 +7,18 @@ import moe.caa.multilogin.api.auth.GameProfile;
 import moe.caa.multilogin.api.plugin.IPlayer;
 import moe.caa.multilogin.api.plugin.ISender;
 import moe.caa.multilogin.api.util.Pair;
+import moe.caa.multilogin.core.auth.service.yggdrasil.ServiceCircuitBreaker;
 import moe.caa.multilogin.core.command.CommandHandler;
 import moe.caa.multilogin.core.command.Permissions;
 import moe.caa.multilogin.core.command.argument.StringArgumentType;
 import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
+import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
+import moe.caa.multilogin.core.language.LanguageHandler;
+import moe.caa.multilogin.core.metrics.LatencyHistogram;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -42,12 +48,19 @@ public class RootCommand {
                 .then(handler.literal("list")
                         .requires(sender -> sender.hasPermission(Permissions.COMMAND_MULTI_LOGIN_LIST))
                         .executes(this::executeList))
+                .then(handler.literal("circuit")
+                        .requires(sender -> sender.hasPermission(Permissions.COMMAND_MULTI_LOGIN_CIRCUIT))
+                        .executes(this::executeCircuit))
+                .then(handler.literal("stats")
+                        .requires(sender -> sender.hasPermission(Permissions.COMMAND_MULTI_LOGIN_STATS))
+                        .executes(this::executeStats))
                 .then(new MWhitelistCommand(handler).register(handler.literal("whitelist")))
                 .then(new MProfileCommand(handler).register(handler.literal("profile")))
                 .then(new MRenameCommand(handler).register(handler.literal("rename")))
                 .then(new MFindCommand(handler).register(handler.literal("find")))
                 .then(new MInfoCommand(handler).register(handler.literal("info")))
                 .then(new MLinkCommand(handler).register(handler.literal("link")))
+                .then(new MSkinCommand(handler).register(handler.literal("skin")))
                 .then(new MDataConvert(handler).register(handler.literal("dataconvert")));
     }
 
@@ -112,6 +125,68 @@ public class RootCommand {
         return 0;
     }
 
+    // /MultiLogin circuit
+    private int executeCircuit(CommandContext<ISender> context) {
+        ServiceCircuitBreaker circuitBreaker = CommandHandler.getCore().getAuthHandler().getYggdrasilAuthenticationService().getCircuitBreaker();
+        String message = CommandHandler.getCore().getLanguageHandler().getMessage("command_message_circuit",
+                new Pair<>("list", CommandHandler.getCore().getPluginConfig().getServiceIdMap().values().stream()
+                        .filter(config -> config instanceof BaseYggdrasilServiceConfig)
+                        .map(config -> {
+                            ServiceCircuitBreaker.Circuit circuit = circuitBreaker.getCircuits().get(config.getId());
+                            return CommandHandler.getCore().getLanguageHandler().getMessage("command_message_circuit_entry",
+                                    new Pair<>("service_name", config.getName()),
+                                    new Pair<>("service_id", config.getId()),
+                                    new Pair<>("state", circuit == null ? ServiceCircuitBreaker.State.CLOSED : circuit.getState()),
+                                    new Pair<>("failures", circuit == null ? 0 : circuit.getConsecutiveFailures()),
+                                    new Pair<>("remaining", circuit == null ? 0 : circuit.getRemainingOpenMillis()),
+                                    new Pair<>("opened", circuit == null ? 0 : circuit.getOpened()),
+                                    new Pair<>("skipped", circuit == null ? 0 : circuit.getSkipped())
+                            );
+                        }).collect(Collectors.joining(CommandHandler.getCore().getLanguageHandler().getMessage("command_message_circuit_delimiter"))))
+        );
+        context.getSource().sendMessagePL(message);
+        return 0;
+    }
+
+    // /MultiLogin stats
+    private int executeStats(CommandContext<ISender> context) {
+        MetricsRegistry registry = CommandHandler.getCore().getMetricsRegistry();
+        LanguageHandler languageHandler = CommandHandler.getCore().getLanguageHandler();
+        List<String> entries = new ArrayList<>();
+        for (MetricsRegistry.Family<LatencyHistogram> family : registry.getHistograms()) {
+            family.getChildren().forEach((label, histogram) -> entries.add(languageHandler.getMessage("command_message_stats_latency_entry",
+                    new Pair<>("name", family.getName()),
+                    new Pair<>("label", label),
+                    new Pair<>("count", histogram.getCount()),
+                    new Pair<>("p50", toMillis(histogram.getQuantile(0.5))),
+                    new Pair<>("p95", toMillis(histogram.getQuantile(0.95))),
+                    new Pair<>("p99", toMillis(histogram.getQuantile(0.99))),
+                    new Pair<>("max", toMillis(histogram.getMax()))
+            )));
+        }
+        for (MetricsRegistry.Family<LongAdder> family : registry.getCounters()) {
+            family.getChildren().forEach((label, counter) -> entries.add(languageHandler.getMessage("command_message_stats_value_entry",
+                    new Pair<>("name", family.getName()),
+                    new Pair<>("label", label),
+                    new Pair<>("value", counter.sum())
+            )));
+        }
+        for (MetricsRegistry.Gauge gauge : registry.getGauges()) {
+            gauge.getValues().forEach((label, value) -> entries.add(languageHandler.getMessage("command_message_stats_value_entry",
+                    new Pair<>("name", gauge.getName()),
+                    new Pair<>("label", label),
+                    new Pair<>("value", value instanceof Double ? String.format("%.3f", value) : value)
+            )));
+        }
+        context.getSource().sendMessagePL(languageHandler.getMessage("command_message_stats",
+                new Pair<>("list", String.join(languageHandler.getMessage("command_message_stats_delimiter"), entries))
+        ));
+        return 0;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
 
     private int executeEraseAllUsernames(CommandContext<ISender> context) {
         handler.getSecondaryConfirmationHandler().submit(context.getSource(), () -> {
@@ -0,0 +1,29 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+
+/**
+ * 表示验证服务熔断配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class CircuitBreakerConfig {
+    private final boolean enable;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    public static CircuitBreakerConfig read(CommentedConfigurationNode node) throws ConfException {
+        boolean enable = node.node("enable").getBoolean(true);
+        int failureThreshold = node.node("failureThreshold").getInt(5);
+        long openDuration = node.node("openDuration").getLong(30000);
+        if (failureThreshold <= 0) throw new ConfException("circuitBreaker.failureThreshold must be greater than 0.");
+        if (openDuration < 0) throw new ConfException("circuitBreaker.openDuration cannot be negative.");
+
+        return new CircuitBreakerConfig(enable, failureThreshold, openDuration);
+    }
+}
@@ -0,0 +1,59 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.flows.workflows.FlowsExecutorProvider;
+import moe.caa.multilogin.flows.workflows.FlowsExecutors;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+/**
+ * 表示工作流线程池配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+@EqualsAndHashCode
+public class FlowsExecutorConfig {
+    private final Mode mode;
+    private final int maxThreads;
+    private final int queueSize;
+    private final Rejection rejection;
+
+    public static FlowsExecutorConfig read(CommentedConfigurationNode node) throws SerializationException, ConfException {
+        Mode mode = node.node("mode").get(Mode.class, Mode.AUTO);
+        int maxThreads = node.node("maxThreads").getInt(64);
+        int queueSize = node.node("queueSize").getInt(1024);
+        Rejection rejection = node.node("rejection").get(Rejection.class, Rejection.CALLER_RUNS);
+        if (maxThreads <= 0) throw new ConfException("flowsExecutor.maxThreads must be greater than 0.");
+        if (queueSize <= 0) throw new ConfException("flowsExecutor.queueSize must be greater than 0.");
+
+        return new FlowsExecutorConfig(mode, maxThreads, queueSize, rejection);
+    }
+
+    /**
+     * 按配置生成线程池提供者
+     */
+    public FlowsExecutorProvider createProvider() {
+        if (mode == Mode.CACHED) return FlowsExecutors.cached();
+        if (mode == Mode.VIRTUAL || mode == Mode.AUTO) {
+            if (FlowsExecutors.isVirtualThreadSupported()) return FlowsExecutors.virtual();
+            if (mode == Mode.VIRTUAL) {
+                LoggerProvider.getLogger().warn("Virtual threads are not supported by the current Java runtime, bounded flows executor will be used.");
+            }
+        }
+        return FlowsExecutors.bounded(maxThreads, queueSize, rejection == Rejection.CALLER_RUNS);
+    }
+
+    public enum Mode {
+        AUTO, VIRTUAL, BOUNDED, CACHED
+    }
+
+    public enum Rejection {
+        CALLER_RUNS, ABORT
+    }
+}
@@ -0,0 +1,47 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import moe.caa.multilogin.core.handle.LoginCacheStore;
+import moe.caa.multilogin.core.handle.MemoryLoginCacheStore;
+import moe.caa.multilogin.core.handle.SQLLoginCacheStore;
+import moe.caa.multilogin.core.main.MultiCore;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+import org.spongepowered.configurate.serialize.SerializationException;
+
+/**
+ * 表示登录缓存配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class LoginCacheConfig {
+    private final Store store;
+    private final long expire;
+
+    public static LoginCacheConfig read(CommentedConfigurationNode node) throws ConfException, SerializationException {
+        Store store = node.node("store").get(Store.class, Store.MEMORY);
+        long expire = node.node("expire").getLong(60000);
+        if (expire <= 0) throw new ConfException("loginCache.expire must be greater than 0.");
+
+        return new LoginCacheConfig(store, expire);
+    }
+
+    /**
+     * 创建登录缓存存储
+     */
+    public LoginCacheStore createStore(MultiCore core) {
+        if (store == Store.SQL) {
+            SQLLoginCacheStore sqlStore = new SQLLoginCacheStore(core, expire);
+            sqlStore.register();
+            return sqlStore;
+        }
+        return new MemoryLoginCacheStore(expire);
+    }
+
+    public enum Store {
+        MEMORY, SQL
+    }
+}
@@ -0,0 +1,27 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+
+/**
+ * 表示统计配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class MetricsConfig {
+    private final boolean prometheus;
+    private final int prometheusPort;
+
+    public static MetricsConfig read(CommentedConfigurationNode node) throws ConfException {
+        boolean prometheus = node.node("prometheus").node("enable").getBoolean(false);
+        int prometheusPort = node.node("prometheus").node("port").getInt(9464);
+        if (prometheusPort <= 0 || prometheusPort > 65535)
+            throw new ConfException("metrics.prometheus.port must be between 1 and 65535.");
+
+        return new MetricsConfig(prometheus, prometheusPort);
+    }
+}
@@ -12,6 +12,8 @@ import moe.caa.multilogin.core.configuration.service.yggdrasil.BlessingSkinYggdr
 import moe.caa.multilogin.core.configuration.service.yggdrasil.CustomYggdrasilServiceConfig;
 import moe.caa.multilogin.core.configuration.service.yggdrasil.OfficialYggdrasilServiceConfig;
 import moe.caa.multilogin.core.main.MultiCore;
+import moe.caa.multilogin.flows.workflows.BaseFlows;
+import moe.caa.multilogin.flows.workflows.FlowsExecutorProvider;
 import org.spongepowered.configurate.CommentedConfigurationNode;
 import org.spongepowered.configurate.serialize.SerializationException;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
@@ -50,11 +52,29 @@ public class PluginConfig {
     @Getter
     private SqlConfig sqlConfig;
     @Getter
+    private FlowsExecutorConfig flowsExecutorConfig;
+    @Getter
     private String nameAllowedRegular;
     private final MultiCore core;
     @Getter
     private boolean welcomeMsg;
     @Getter
+    private long hedgeDelay;
+    @Getter
+    private CircuitBreakerConfig circuitBreakerConfig;
+    @Getter
+    private ProfileCacheConfig profileCacheConfig;
+    @Getter
+    private LoginCacheConfig loginCacheConfig;
+    @Getter
+    private MetricsConfig metricsConfig;
+    @Getter
+    private String mineskinApi;
+    @Getter
+    private SkinRestorerQueueConfig skinRestorerQueueConfig;
+    @Getter
+    private SkinRestoredCacheConfig skinRestoredCacheConfig;
+    @Getter
     private Map<Integer, BaseServiceConfig> serviceIdMap = new HashMap<>();
 
     public PluginConfig(File dataFolder, MultiCore core) {
@@ -96,11 +116,26 @@ public class PluginConfig {
         forceUseLogin = configConfigurationNode.node("forceUseLogin").getBoolean(true);
         checkUpdate = configConfigurationNode.node("checkUpdate").getBoolean(true);
         sqlConfig = SqlConfig.read(configConfigurationNode.node("sql"));
+        FlowsExecutorConfig newFlowsExecutorConfig = FlowsExecutorConfig.read(configConfigurationNode.node("flowsExecutor"));
+        if (!newFlowsExecutorConfig.equals(flowsExecutorConfig)) {
+            flowsExecutorConfig = newFlowsExecutorConfig;
+            FlowsExecutorProvider provider = flowsExecutorConfig.createProvider();
+            BaseFlows.setExecutorProvider(provider);
+            LoggerProvider.getLogger().info(String.format("Using %s flows executor.", provider.getName()));
+        }
         nameAllowedRegular = configConfigurationNode.node("nameAllowedRegular").getString("^[0-9a-zA-Z_]{3,16}$");
         floodgateSupport = configConfigurationNode.node("floodgateSupport").getBoolean(false);
         welcomeMsg = configConfigurationNode.node("welcomeMsg").getBoolean(true);
         nameCorrect = configConfigurationNode.node("nameCorrect").getBoolean(true);
         autoNameChange = configConfigurationNode.node("autoNameChange").getBoolean(true);
+        hedgeDelay = configConfigurationNode.node("hedgeDelay").getLong(-1);
+        circuitBreakerConfig = CircuitBreakerConfig.read(configConfigurationNode.node("circuitBreaker"));
+        profileCacheConfig = ProfileCacheConfig.read(configConfigurationNode.node("profileCache"), sqlConfig.getBackend());
+        loginCacheConfig = LoginCacheConfig.read(configConfigurationNode.node("loginCache"));
+        metricsConfig = MetricsConfig.read(configConfigurationNode.node("metrics"));
+        mineskinApi = configConfigurationNode.node("skinRestorer").node("mineskinApi").getString("https://api.mineskin.org");
+        skinRestorerQueueConfig = SkinRestorerQueueConfig.read(configConfigurationNode.node("skinRestorer").node("queue"));
+        skinRestoredCacheConfig = SkinRestoredCacheConfig.read(configConfigurationNode.node("skinRestorer").node("cache"));
 
         Map<Integer, BaseServiceConfig> idMap = new HashMap<>();
         try (Stream<Path> list = Files.list(servicesFolder.toPath())) {
@@ -169,6 +204,7 @@ public class PluginConfig {
                 "Added %d authentication services.", idMap.size()
         ));
         this.serviceIdMap = Collections.unmodifiableMap(idMap);
+        core.getHttpClientRegistry().refresh(serviceIdMap);
 
 
     }
@@ -0,0 +1,34 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+
+/**
+ * 表示玩家档案缓存配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class ProfileCacheConfig {
+    private final boolean enable;
+    private final int maxSize;
+    private final long expire;
+
+    /**
+     * 读取配置
+     *
+     * @param backend 数据库类型，缓存只在本进程内失效，MySQL 可能被多个代理端共享，因此默认不启用
+     */
+    public static ProfileCacheConfig read(CommentedConfigurationNode node, SqlConfig.SqlBackend backend) throws ConfException {
+        boolean enable = node.node("enable").getBoolean(backend != SqlConfig.SqlBackend.MYSQL);
+        int maxSize = node.node("maxSize").getInt(4096);
+        long expire = node.node("expire").getLong(300000);
+        if (maxSize <= 0) throw new ConfException("profileCache.maxSize must be greater than 0.");
+        if (expire <= 0) throw new ConfException("profileCache.expire must be greater than 0.");
+
+        return new ProfileCacheConfig(enable, maxSize, expire);
+    }
+}
@@ -0,0 +1,29 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+
+/**
+ * 表示皮肤修复记录缓存配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class SkinRestoredCacheConfig {
+    private final boolean enable;
+    private final int maxSize;
+    private final long expire;
+
+    public static SkinRestoredCacheConfig read(CommentedConfigurationNode node) throws ConfException {
+        boolean enable = node.node("enable").getBoolean(true);
+        int maxSize = node.node("maxSize").getInt(4096);
+        long expire = node.node("expire").getLong(3600000);
+        if (maxSize <= 0) throw new ConfException("skinRestorer.cache.maxSize must be greater than 0.");
+        if (expire <= 0) throw new ConfException("skinRestorer.cache.expire must be greater than 0.");
+
+        return new SkinRestoredCacheConfig(enable, maxSize, expire);
+    }
+}
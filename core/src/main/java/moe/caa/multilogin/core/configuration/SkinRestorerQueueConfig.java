@@ -0,0 +1,36 @@
+package moe.caa.multilogin.core.configuration;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.spongepowered.configurate.CommentedConfigurationNode;
+
+/**
+ * 表示皮肤修复队列配置
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class SkinRestorerQueueConfig {
+    private final int capacity;
+    private final int permitsPerMinute;
+    private final int burst;
+    private final int maxAttempts;
+    private final long retryDelay;
+
+    public static SkinRestorerQueueConfig read(CommentedConfigurationNode node) throws ConfException {
+        int capacity = node.node("capacity").getInt(1000);
+        int permitsPerMinute = node.node("permitsPerMinute").getInt(20);
+        int burst = node.node("burst").getInt(3);
+        int maxAttempts = node.node("maxAttempts").getInt(3);
+        long retryDelay = node.node("retryDelay").getLong(60000);
+        if (capacity <= 0) throw new ConfException("skinRestorer.queue.capacity must be greater than 0.");
+        if (permitsPerMinute <= 0) throw new ConfException("skinRestorer.queue.permitsPerMinute must be greater than 0.");
+        if (burst <= 0) throw new ConfException("skinRestorer.queue.burst must be greater than 0.");
+        if (maxAttempts <= 0) throw new ConfException("skinRestorer.queue.maxAttempts must be greater than 0.");
+        if (retryDelay < 0) throw new ConfException("skinRestorer.queue.retryDelay cannot be less than 0.");
+
+        return new SkinRestorerQueueConfig(capacity, permitsPerMinute, burst, maxAttempts, retryDelay);
+    }
+}
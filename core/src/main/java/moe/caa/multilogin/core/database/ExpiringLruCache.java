@@ -0,0 +1,216 @@
+package moe.caa.multilogin.core.database;
+
+import lombok.AllArgsConstructor;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 有容量上限和过期时间的 LRU 缓存
+ * 每次失效都会使版本号增加并记下被失效的键或索引，读取数据库前取得版本号，
+ * 写入缓存时同一个键或索引在此之后被失效过则放弃写入，避免在数据被修改的同时把读到的旧值写回缓存
+ * 失效记录超出上限时淘汰最旧的一条，并放弃所有早于它的写入
+ */
+public class ExpiringLruCache<K, V> {
+    private final int maxSize;
+    private final long expireMillis;
+    private final Function<V, ?> indexer;
+    private final LinkedHashMap<K, Entry<V>> map;
+    // 索引 \ 具有该索引的键
+    private final Map<Object, Set<K>> index = new HashMap<>();
+    // 键或索引 \ 最后一次失效时的版本号
+    private final LinkedHashMap<K, Long> invalidatedKeys;
+    private final LinkedHashMap<Object, Long> invalidatedIndexes;
+    private long version = 0;
+    // 早于此版本号的写入一律放弃
+    private long floor = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize      最大条目数，不大于 0 时不缓存任何数据
+     * @param expireMillis 条目写入后的存活时间
+     */
+    public ExpiringLruCache(int maxSize, long expireMillis) {
+        this(maxSize, expireMillis, null);
+    }
+
+    /**
+     * @param maxSize      最大条目数，不大于 0 时不缓存任何数据
+     * @param expireMillis 条目写入后的存活时间
+     * @param indexer      取得值的二级索引，返回 null 时不建立索引，可以按索引使条目失效
+     */
+    public ExpiringLruCache(int maxSize, long expireMillis, Function<V, ?> indexer) {
+        this.maxSize = maxSize;
+        this.expireMillis = expireMillis;
+        this.indexer = indexer;
+        this.map = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= ExpiringLruCache.this.maxSize) return false;
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.invalidatedKeys = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                return evictInvalidation(size(), eldest.getValue());
+            }
+        };
+        this.invalidatedIndexes = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+                return evictInvalidation(size(), eldest.getValue());
+            }
+        };
+    }
+
+    /**
+     * 获得缓存的值
+     *
+     * @return 不存在或已过期时为 null
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            remove(key);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * 获得当前版本号，在读取数据库前调用
+     */
+    public synchronized long stamp() {
+        return version;
+    }
+
+    /**
+     * 写入缓存，自取得版本号以来该键或值的索引被失效过时不写入
+     *
+     * @param stamp 读取数据库前取得的版本号
+     */
+    public synchronized void put(K key, V value, long stamp) {
+        if (maxSize <= 0 || value == null || stamp < floor) return;
+        if (invalidatedSince(invalidatedKeys.get(key), stamp)) return;
+        Object indexKey = indexOf(value);
+        if (indexKey != null && invalidatedSince(invalidatedIndexes.get(indexKey), stamp)) return;
+        store(key, value, indexKey);
+    }
+
+    /**
+     * 条目不存在或已过期时写入缓存，不会覆盖其他线程写入的值
+     */
+    public synchronized void putIfAbsent(K key, V value) {
+        if (maxSize <= 0 || value == null) return;
+        Entry<V> entry = map.get(key);
+        if (entry != null && entry.expireAt >= System.currentTimeMillis()) return;
+        store(key, value, indexOf(value));
+    }
+
+    /**
+     * 使一个条目失效
+     */
+    public synchronized void invalidate(K key) {
+        version++;
+        if (maxSize <= 0) return;
+        invalidatedKeys.remove(key);
+        invalidatedKeys.put(key, version);
+        remove(key);
+    }
+
+    /**
+     * 使所有具有该索引的条目失效
+     */
+    public synchronized void invalidateIndexed(Object indexKey) {
+        version++;
+        if (maxSize <= 0) return;
+        invalidatedIndexes.remove(indexKey);
+        invalidatedIndexes.put(indexKey, version);
+        Set<K> keys = index.remove(indexKey);
+        if (keys != null) keys.forEach(map::remove);
+    }
+
+    /**
+     * 使所有条目失效
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        floor = version;
+        map.clear();
+        index.clear();
+        invalidatedKeys.clear();
+        invalidatedIndexes.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率，没有访问时为 0
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private Object indexOf(V value) {
+        return indexer == null ? null : indexer.apply(value);
+    }
+
+    private static boolean invalidatedSince(Long invalidatedAt, long stamp) {
+        return invalidatedAt != null && invalidatedAt > stamp;
+    }
+
+    private boolean evictInvalidation(int size, long invalidatedAt) {
+        if (size <= maxSize) return false;
+        floor = Math.max(floor, invalidatedAt);
+        return true;
+    }
+
+    private void store(K key, V value, Object indexKey) {
+        Entry<V> old = map.put(key, new Entry<>(value, indexKey, System.currentTimeMillis() + expireMillis));
+        if (old != null) unindex(key, old);
+        if (indexKey != null) index.computeIfAbsent(indexKey, k -> new HashSet<>()).add(key);
+    }
+
+    private void remove(K key) {
+        Entry<V> old = map.remove(key);
+        if (old != null) unindex(key, old);
+    }
+
+    private void unindex(K key, Entry<V> entry) {
+        if (entry.indexKey == null) return;
+        Set<K> keys = index.get(entry.indexKey);
+        if (keys == null) return;
+        keys.remove(key);
+        if (keys.isEmpty()) index.remove(entry.indexKey);
+    }
+
+    @AllArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final Object indexKey;
+        private final long expireAt;
+    }
+}
@@ -0,0 +1,144 @@
+package moe.caa.multilogin.core.database;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import moe.caa.multilogin.api.util.Pair;
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.core.configuration.ProfileCacheConfig;
+import moe.caa.multilogin.core.configuration.SkinRestoredCacheConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 玩家档案读缓存
+ * 缓存用户数据表和游戏内档案表的查询结果，数据表的所有修改方法都会使对应条目失效
+ */
+public class ProfileCache {
+    // onlineUUID + serviceId \ onlineName, inGameUUID, whitelist
+    @Getter
+    private final ExpiringLruCache<UserKey, There<String, UUID, Boolean>> userData;
+    // inGameUUID \ serviceIds
+    @Getter
+    private final ExpiringLruCache<UUID, Set<Integer>> onlineServiceIds;
+    // inGameUUID \ inGameUUID, username
+    @Getter
+    private final ExpiringLruCache<UUID, Pair<UUID, String>> inGameProfiles;
+    // 小写用户名 \ inGameUUID
+    @Getter
+    private final ExpiringLruCache<String, UUID> inGameUUIDs;
+    // 皮肤 URL sha256 + 模型 \ 修复后的 value, signature，签名本就有效的皮肤为 NOT_RESTORED
+    @Getter
+    private final ExpiringLruCache<SkinKey, Pair<String, String>> skinRestored;
+
+    // 事务中产生的失效操作，事务结束后需要再执行一次
+    private final Map<Connection, List<Runnable>> transactionInvalidations = Collections.synchronizedMap(new IdentityHashMap<>());
+    // 事务提交后才执行的操作
+    private final Map<Connection, List<Runnable>> commitActions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public ProfileCache(ProfileCacheConfig config, SkinRestoredCacheConfig skinConfig) {
+        int maxSize = config.isEnable() ? config.getMaxSize() : 0;
+        // 按游戏内 UUID 索引用户数据
+        this.userData = new ExpiringLruCache<>(maxSize, config.getExpire(), There::getValue2);
+        this.onlineServiceIds = new ExpiringLruCache<>(maxSize, config.getExpire());
+        // 按小写用户名索引游戏内档案
+        this.inGameProfiles = new ExpiringLruCache<>(maxSize, config.getExpire(),
+                v -> v.getValue2() == null ? null : v.getValue2().toLowerCase(Locale.ROOT));
+        // 按游戏内 UUID 索引用户名占用记录
+        this.inGameUUIDs = new ExpiringLruCache<>(maxSize, config.getExpire(), v -> v);
+        // 皮肤修复记录只会新增，不受玩家档案缓存开关影响，多个代理端共用数据库时也可以缓存
+        this.skinRestored = new ExpiringLruCache<>(skinConfig.isEnable() ? skinConfig.getMaxSize() : 0, skinConfig.getExpire());
+    }
+
+    /**
+     * 立即执行失效操作，如果连接处于事务中，在事务结束后再执行一次，
+     * 避免其他线程在提交前把旧值写回缓存，或回滚后缓存中残留未提交的值
+     */
+    public void invalidate(Connection connection, Runnable invalidation) throws SQLException {
+        invalidation.run();
+        if (!connection.getAutoCommit()) {
+            transactionInvalidations.computeIfAbsent(connection, k -> new ArrayList<>()).add(invalidation);
+        }
+    }
+
+    /**
+     * 在数据提交后执行操作，连接不处于事务中时立即执行，事务回滚时丢弃
+     */
+    public void afterCommit(Connection connection, Runnable action) throws SQLException {
+        if (connection.getAutoCommit()) {
+            action.run();
+            return;
+        }
+        commitActions.computeIfAbsent(connection, k -> new ArrayList<>()).add(action);
+    }
+
+    /**
+     * 连接上的事务提交或回滚后调用
+     *
+     * @param committed 事务是否已提交
+     */
+    public void completeTransaction(Connection connection, boolean committed) {
+        List<Runnable> actions = commitActions.remove(connection);
+        if (committed && actions != null) actions.forEach(Runnable::run);
+        List<Runnable> invalidations = transactionInvalidations.remove(connection);
+        if (invalidations != null) invalidations.forEach(Runnable::run);
+    }
+
+    public void invalidateUserData(UUID onlineUUID, int serviceId) {
+        userData.invalidate(new UserKey(onlineUUID, serviceId));
+    }
+
+    /**
+     * 用户数据的游戏内 UUID 被修改
+     *
+     * @param previousInGameUUID 修改前的游戏内 UUID，没有时为 null
+     * @param inGameUUID         新的游戏内 UUID
+     */
+    public void invalidateUserInGameUUID(UUID onlineUUID, int serviceId, UUID previousInGameUUID, UUID inGameUUID) {
+        invalidateUserData(onlineUUID, serviceId);
+        onlineServiceIds.invalidate(inGameUUID);
+        if (previousInGameUUID != null) onlineServiceIds.invalidate(previousInGameUUID);
+    }
+
+    public void invalidateUserDataByInGameUUID(UUID inGameUUID) {
+        userData.invalidateIndexed(inGameUUID);
+    }
+
+    /**
+     * 游戏内档案被修改
+     */
+    public void invalidateInGameProfile(UUID inGameUUID) {
+        inGameProfiles.invalidate(inGameUUID);
+        inGameUUIDs.invalidateIndexed(inGameUUID);
+    }
+
+    /**
+     * 用户名的占用记录被修改
+     */
+    public void invalidateUsername(String username) {
+        String lowerCase = username.toLowerCase(Locale.ROOT);
+        inGameUUIDs.invalidate(lowerCase);
+        inGameProfiles.invalidateIndexed(lowerCase);
+    }
+
+    public void invalidateAllUsername() {
+        inGameUUIDs.invalidateAll();
+        inGameProfiles.invalidateAll();
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class UserKey {
+        private final UUID onlineUUID;
+        private final int serviceId;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class SkinKey {
+        private final byte[] urlSha256;
+        private final String model;
+    }
+}
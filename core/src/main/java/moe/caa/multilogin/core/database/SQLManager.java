@@ -7,12 +7,17 @@ import moe.caa.multilogin.core.database.pool.H2ConnectionPool;
 import moe.caa.multilogin.core.database.pool.ISQLConnectionPool;
 import moe.caa.multilogin.core.database.pool.MysqlConnectionPool;
 import moe.caa.multilogin.core.database.table.InGameProfileTableV3;
+import moe.caa.multilogin.core.database.table.LoginCacheTableV1;
 import moe.caa.multilogin.core.database.table.SkinRestoredCacheTableV2;
-import moe.caa.multilogin.core.database.table.UserDataTableV3;
+import moe.caa.multilogin.core.database.table.SkinRestorerQueueTableV1;
+import moe.caa.multilogin.core.database.table.UserDataTableV4;
 import moe.caa.multilogin.core.main.MultiCore;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 数据库管理程序
@@ -25,13 +30,32 @@ public class SQLManager {
     @Getter
     private InGameProfileTableV3 inGameProfileTable;
     @Getter
-    private UserDataTableV3 userDataTable;
+    private UserDataTableV4 userDataTable;
     @Getter
     private SkinRestoredCacheTableV2 skinRestoredCacheTable;
+    @Getter
+    private LoginCacheTableV1 loginCacheTable;
+    @Getter
+    private SkinRestorerQueueTableV1 skinRestorerQueueTable;
+
+    // 异步登录流程中执行数据库操作的线程池，大小与连接池相当
+    @Getter
+    private final ExecutorService asyncExecutor;
+    @Getter
+    private final WriteBehindQueue writeBehindQueue;
+    @Getter
+    private ProfileCache profileCache;
 
 
     public SQLManager(MultiCore core) {
         this.core = core;
+        this.writeBehindQueue = new WriteBehindQueue(this);
+        AtomicInteger threadId = new AtomicInteger();
+        this.asyncExecutor = Executors.newFixedThreadPool(16, r -> {
+            Thread thread = new Thread(r, "MultiLogin SQL #" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public void init() throws SQLException, ClassNotFoundException {
@@ -54,21 +78,38 @@ public class SQLManager {
         final String inGameProfileTableNameV3 = tablePrefix + "in_game_profile_v3";
         final String userDataTableNameV2 = tablePrefix + "user_data_v2";
         final String userDataTableNameV3 = tablePrefix + "user_data_v3";
+        final String userDataTableNameV4 = tablePrefix + "user_data_v4";
         final String skinRestorerCacheTableNameV2 = tablePrefix + "skin_restored_cache_v2";
-        userDataTable = new UserDataTableV3(this, userDataTableNameV3, userDataTableNameV2);
+        final String loginCacheTableNameV1 = tablePrefix + "login_cache_v1";
+        final String skinRestorerQueueTableNameV1 = tablePrefix + "skin_restorer_queue_v1";
+        profileCache = new ProfileCache(core.getPluginConfig().getProfileCacheConfig(), core.getPluginConfig().getSkinRestoredCacheConfig());
+        userDataTable = new UserDataTableV4(this, userDataTableNameV4, userDataTableNameV3, userDataTableNameV2);
         skinRestoredCacheTable = new SkinRestoredCacheTableV2(this, skinRestorerCacheTableNameV2);
         inGameProfileTable = new InGameProfileTableV3(this, inGameProfileTableNameV3, inGameProfileTableNameV2);
+        loginCacheTable = new LoginCacheTableV1(this, loginCacheTableNameV1);
+        skinRestorerQueueTable = new SkinRestorerQueueTableV1(this, skinRestorerQueueTableNameV1);
 
         try (Connection connection = getPool().getConnection()){
             connection.setAutoCommit(false);
             userDataTable.init(connection);
             inGameProfileTable.init(connection);
             skinRestoredCacheTable.init(connection);
+            loginCacheTable.init(connection);
+            skinRestorerQueueTable.init(connection);
+            // 嵌入式数据库只被本进程访问，可以在内存中维护完整的用户名索引
+            if (sqlConfig.getBackend() == SqlConfig.SqlBackend.H2) {
+                inGameProfileTable.loadUsernameIndex(connection);
+            }
             connection.commit();
         }
+        core.getPlugin().getRunServer().getScheduler().runTaskAsyncTimer(writeBehindQueue::flush, 1000, 1000);
     }
 
     public void close() {
-        if (pool != null) pool.close();
+        asyncExecutor.shutdown();
+        if (pool != null) {
+            writeBehindQueue.flush();
+            pool.close();
+        }
     }
 }
@@ -0,0 +1,51 @@
+package moe.caa.multilogin.core.database;
+
+import java.util.*;
+
+/**
+ * 已占用用户名的内存索引
+ * 仅在数据库只被本进程访问时（H2）启用，启动时载入全部用户名，之后随数据提交同步更新
+ */
+public class UsernameIndex {
+    // 小写用户名 \ inGameUUID
+    private final NavigableMap<String, UUID> byName = new TreeMap<>();
+    // inGameUUID \ 小写用户名
+    private final Map<UUID, String> byInGameUUID = new HashMap<>();
+
+    public synchronized void put(UUID inGameUUID, String lowerCaseUsername) {
+        remove(inGameUUID);
+        if (lowerCaseUsername == null) return;
+        UUID old = byName.put(lowerCaseUsername, inGameUUID);
+        if (old != null) byInGameUUID.remove(old);
+        byInGameUUID.put(inGameUUID, lowerCaseUsername);
+    }
+
+    public synchronized void remove(UUID inGameUUID) {
+        String name = byInGameUUID.remove(inGameUUID);
+        if (name != null) byName.remove(name);
+    }
+
+    public synchronized void removeUsername(String lowerCaseUsername) {
+        UUID inGameUUID = byName.remove(lowerCaseUsername);
+        if (inGameUUID != null) byInGameUUID.remove(inGameUUID);
+    }
+
+    public synchronized void clear() {
+        byName.clear();
+        byInGameUUID.clear();
+    }
+
+    /**
+     * 获得所有以指定前缀开头的用户名
+     *
+     * @param lowerCasePrefix 小写前缀
+     * @return 小写用户名 \ inGameUUID
+     */
+    public synchronized Map<String, UUID> getStartWith(String lowerCasePrefix) {
+        return new HashMap<>(byName.subMap(lowerCasePrefix, true, lowerCasePrefix + Character.MAX_VALUE, false));
+    }
+
+    public synchronized int size() {
+        return byName.size();
+    }
+}
@@ -0,0 +1,105 @@
+package moe.caa.multilogin.core.database;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.api.util.There;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 延迟写入队列
+ * 登录时非关键的更新（在线名称、白名单标记）先放入队列，由定时任务合并后批量写入数据库
+ * 同一条数据的多次更新只保留最后一次
+ */
+public class WriteBehindQueue {
+    private final SQLManager sqlManager;
+    private final Map<Key, String> pendingOnlineNames = new ConcurrentHashMap<>();
+    private final Map<Key, Boolean> pendingWhitelists = new ConcurrentHashMap<>();
+
+    public WriteBehindQueue(SQLManager sqlManager) {
+        this.sqlManager = sqlManager;
+    }
+
+    /**
+     * 延迟设置在线名称
+     */
+    public void queueOnlineName(UUID onlineUUID, int serviceId, String onlineName) {
+        pendingOnlineNames.put(new Key(onlineUUID, serviceId), onlineName);
+    }
+
+    /**
+     * 延迟设置白名单
+     */
+    public void queueWhitelist(UUID onlineUUID, int serviceId, boolean whitelist) {
+        pendingWhitelists.put(new Key(onlineUUID, serviceId), whitelist);
+    }
+
+    /**
+     * 获得尚未写入的在线名称
+     *
+     * @return 没有等待写入的数据时为 null
+     */
+    public String getPendingOnlineName(UUID onlineUUID, int serviceId) {
+        if (pendingOnlineNames.isEmpty()) return null;
+        return pendingOnlineNames.get(new Key(onlineUUID, serviceId));
+    }
+
+    /**
+     * 获得尚未写入的白名单
+     *
+     * @return 没有等待写入的数据时为 null
+     */
+    public Boolean getPendingWhitelist(UUID onlineUUID, int serviceId) {
+        if (pendingWhitelists.isEmpty()) return null;
+        return pendingWhitelists.get(new Key(onlineUUID, serviceId));
+    }
+
+    /**
+     * 在一个事务中批量写入所有等待中的更新
+     */
+    public synchronized void flush() {
+        if (pendingOnlineNames.isEmpty() && pendingWhitelists.isEmpty()) return;
+        Map<Key, String> onlineNames = new HashMap<>(pendingOnlineNames);
+        Map<Key, Boolean> whitelists = new HashMap<>(pendingWhitelists);
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            connection.setAutoCommit(false);
+            boolean committed = false;
+            try {
+                if (!onlineNames.isEmpty()) {
+                    sqlManager.getUserDataTable().batchSetOnlineName(connection, onlineNames.entrySet().stream()
+                            .map(e -> new There<>(e.getKey().onlineUUID, e.getKey().serviceId, e.getValue())).toList());
+                }
+                if (!whitelists.isEmpty()) {
+                    sqlManager.getUserDataTable().batchSetWhitelist(connection, whitelists.entrySet().stream()
+                            .map(e -> new There<>(e.getKey().onlineUUID, e.getKey().serviceId, e.getValue())).toList());
+                }
+                connection.commit();
+                committed = true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                sqlManager.getProfileCache().completeTransaction(connection, committed);
+            }
+        } catch (SQLException e) {
+            LoggerProvider.getLogger().error("An exception occurred while writing delayed updates, will retry later.", e);
+            return;
+        }
+        // 只移除已写入的值，期间产生的新值留到下次写入
+        onlineNames.forEach(pendingOnlineNames::remove);
+        whitelists.forEach(pendingWhitelists::remove);
+        LoggerProvider.getLogger().debug(String.format("Flushed %d delayed online name updates and %d delayed whitelist updates.",
+                onlineNames.size(), whitelists.size()));
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        private final UUID onlineUUID;
+        private final int serviceId;
+    }
+}
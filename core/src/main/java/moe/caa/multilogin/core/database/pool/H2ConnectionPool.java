@@ -10,7 +10,8 @@ import java.sql.SQLException;
  * H2 数据库链接池
  */
 public class H2ConnectionPool implements ISQLConnectionPool {
-    public static final String defaultUrl = "jdbc:h2:{0};TRACE_LEVEL_FILE=0;TRACE_LEVEL_SYSTEM_OUT=0";
+    // 连接池复用会话，QUERY_CACHE_SIZE 为每个会话缓存的已解析语句数量
+    public static final String defaultUrl = "jdbc:h2:{0};TRACE_LEVEL_FILE=0;TRACE_LEVEL_SYSTEM_OUT=0;QUERY_CACHE_SIZE=64";
     private final JdbcConnectionPool cp;
 
     public H2ConnectionPool(File dataFolder, String user, String password) throws ClassNotFoundException {
@@ -27,6 +28,21 @@ public class H2ConnectionPool implements ISQLConnectionPool {
         return cp.getConnection();
     }
 
+    @Override
+    public int getActiveConnections() {
+        return cp.getActiveConnections();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return cp.getMaxConnections();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return -1;
+    }
+
     @Override
     public String name() {
         return "H2";
@@ -14,6 +14,21 @@ public interface ISQLConnectionPool {
      */
     Connection getConnection() throws SQLException;
 
+    /**
+     * 获得正在使用的连接数
+     */
+    int getActiveConnections();
+
+    /**
+     * 获得最大连接数
+     */
+    int getMaxConnections();
+
+    /**
+     * 获得正在等待空闲连接的线程数，不支持统计时返回 -1
+     */
+    int getThreadsAwaitingConnection();
+
     /**
      * 获得该连接池名字
      */
@@ -21,6 +21,14 @@ public class MysqlConnectionPool implements ISQLConnectionPool {
         config.setUsername(username);
         config.setPassword(password);
         config.setMaximumPoolSize(20);
+        // 客户端与服务端预编译语句缓存，批量更新合并为一条语句
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        config.addDataSourceProperty("useLocalSessionState", "true");
         dataSource = new HikariDataSource(config);
     }
 
@@ -33,6 +41,21 @@ public class MysqlConnectionPool implements ISQLConnectionPool {
         return dataSource.getConnection();
     }
 
+    @Override
+    public int getActiveConnections() {
+        return dataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+    }
+
     @Override
     public String name() {
         return "MySQL";
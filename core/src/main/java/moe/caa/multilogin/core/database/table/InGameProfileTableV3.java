@@ -3,14 +3,19 @@ package moe.caa.multilogin.core.database.table;
 import moe.caa.multilogin.api.logger.LoggerProvider;
 import moe.caa.multilogin.api.util.Pair;
 import moe.caa.multilogin.api.util.ValueUtil;
+import moe.caa.multilogin.core.database.ExpiringLruCache;
 import moe.caa.multilogin.core.database.SQLManager;
+import moe.caa.multilogin.core.database.UsernameIndex;
+import moe.caa.multilogin.core.metrics.SQLTimer;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class InGameProfileTableV3 {
     private static final String fieldInGameUuid = "in_game_uuid";
@@ -19,11 +24,67 @@ public class InGameProfileTableV3 {
     private final String tableName;
     private final String tableNameV2;
     private final SQLManager sqlManager;
+    private final SQLTimer timer;
+    private final String selectSql;
+    private final String selectInGameUUIDSql;
+    private final String updateUsernameSql;
+    private final String insertSql;
+    private final String deleteSql;
+    private final String eraseUsernameSql;
+    private final String eraseAllUsernameSql;
+    private final String selectUsernamesStartWithSql;
+    private final String selectAllUsernameSql;
+    private final String reserveSql;
+    // 已占用用户名索引，为 null 时直接查询数据库
+    private UsernameIndex usernameIndex;
 
     public InGameProfileTableV3(SQLManager sqlManager, String tableName, String tableNameV2) {
         this.tableName = tableName;
         this.sqlManager = sqlManager;
+        this.timer = new SQLTimer(sqlManager.getCore().getMetricsRegistry().getTableLatency());
         this.tableNameV2 = tableNameV2;
+
+        // SQL 语句只在创建时拼接一次
+        this.selectSql = String.format(
+                "SELECT %s FROM %s WHERE %s = ? LIMIT 1"
+                , fieldCurrentUsernameOriginal, tableName, fieldInGameUuid
+        );
+        this.selectInGameUUIDSql = String.format(
+                "SELECT %s FROM %s WHERE %s = ? LIMIT 1"
+                , fieldInGameUuid, tableName, fieldCurrentUsernameLowerCase
+        );
+        this.updateUsernameSql = String.format(
+                "UPDATE %s SET %s = ?, %s = ? WHERE %s = ?"
+                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal, fieldInGameUuid
+        );
+        this.insertSql = String.format(
+                "INSERT INTO %s (%s, %s, %s) VALUES (?, ?, ?)"
+                , tableName, fieldInGameUuid, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal
+        );
+        this.deleteSql = String.format(
+                "DELETE FROM %s WHERE %s = ?"
+                , tableName, fieldInGameUuid
+        );
+        this.eraseUsernameSql = String.format(
+                "UPDATE %s SET %s = ?, %s = ? WHERE %s = ?"
+                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal, fieldCurrentUsernameLowerCase
+        );
+        this.eraseAllUsernameSql = String.format(
+                "UPDATE %s SET %s = ?, %s = ?"
+                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal
+        );
+        this.selectUsernamesStartWithSql = String.format(
+                "SELECT %s, %s FROM %s WHERE %s LIKE ? ESCAPE '!'"
+                , fieldCurrentUsernameLowerCase, fieldInGameUuid, tableName, fieldCurrentUsernameLowerCase
+        );
+        this.reserveSql = String.format(
+                "INSERT INTO %s (%s) VALUES (?)"
+                , tableName, fieldInGameUuid
+        );
+        this.selectAllUsernameSql = String.format(
+                "SELECT %s, %s FROM %s WHERE %s IS NOT NULL"
+                , fieldCurrentUsernameLowerCase, fieldInGameUuid, tableName, fieldCurrentUsernameLowerCase
+        );
     }
 
 
@@ -88,22 +149,30 @@ public class InGameProfileTableV3 {
     }
 
     public Pair<UUID, String> get(UUID inGameUUID) throws SQLException {
-        String sql = String.format(
-                "SELECT %s FROM %s WHERE %s = ? LIMIT 1"
-                , fieldCurrentUsernameOriginal, tableName, fieldInGameUuid
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    String string = resultSet.getString(1);
-                    return new Pair<>(inGameUUID, string);
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return get(connection, inGameUUID);
+        }
+    }
+
+    public Pair<UUID, String> get(Connection connection, UUID inGameUUID) throws SQLException {
+        return timer.timed("InGameProfileTableV3.get", () -> {
+            ExpiringLruCache<UUID, Pair<UUID, String>> cache = sqlManager.getProfileCache().getInGameProfiles();
+            Pair<UUID, String> cached = cache.get(inGameUUID);
+            if (cached != null) return cached;
+            long stamp = cache.stamp();
+            try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        String string = resultSet.getString(1);
+                        Pair<UUID, String> profile = new Pair<>(inGameUUID, string);
+                        cache.put(inGameUUID, profile, stamp);
+                        return profile;
+                    }
                 }
             }
-        }
-        return null;
+            return null;
+        });
     }
 
     /**
@@ -113,21 +182,70 @@ public class InGameProfileTableV3 {
      * @return 游戏内 UUID
      */
     public UUID getInGameUUIDIgnoreCase(String currentUsername) throws SQLException {
-        String sql = String.format(
-                "SELECT %s FROM %s WHERE LOWER(%s) = ? LIMIT 1"
-                , fieldInGameUuid, tableName, fieldCurrentUsernameLowerCase
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setString(1, currentUsername.toLowerCase(Locale.ROOT));
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return ValueUtil.bytesToUuid(resultSet.getBytes(1));
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return getInGameUUIDIgnoreCase(connection, currentUsername);
+        }
+    }
+
+    public UUID getInGameUUIDIgnoreCase(Connection connection, String currentUsername) throws SQLException {
+        return timer.timed("InGameProfileTableV3.getInGameUUIDIgnoreCase", () -> {
+            String lowerCase = currentUsername.toLowerCase(Locale.ROOT);
+            ExpiringLruCache<String, UUID> cache = sqlManager.getProfileCache().getInGameUUIDs();
+            UUID cached = cache.get(lowerCase);
+            if (cached != null) return cached;
+            long stamp = cache.stamp();
+            try (PreparedStatement statement = connection.prepareStatement(selectInGameUUIDSql)) {
+                statement.setString(1, lowerCase);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        UUID inGameUUID = ValueUtil.bytesToUuid(resultSet.getBytes(1));
+                        cache.put(lowerCase, inGameUUID, stamp);
+                        return inGameUUID;
+                    }
                 }
             }
-        }
-        return null;
+            return null;
+        });
+    }
+
+    /**
+     * 获得所有以指定前缀开头（忽略大小写）的已占用用户名
+     *
+     * @param prefix 前缀
+     * @return 小写用户名 \ 游戏内 UUID
+     */
+    public Map<String, UUID> getUsernamesStartWith(Connection connection, String prefix) throws SQLException {
+        return timer.timed("InGameProfileTableV3.getUsernamesStartWith", () -> {
+            String lowerCase = prefix.toLowerCase(Locale.ROOT);
+            if (usernameIndex != null) return usernameIndex.getStartWith(lowerCase);
+            Map<String, UUID> result = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(selectUsernamesStartWithSql)) {
+                statement.setString(1, lowerCase.replace("!", "!!").replace("%", "!%").replace("_", "!_") + '%');
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.put(resultSet.getString(1), ValueUtil.bytesToUuid(resultSet.getBytes(2)));
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 载入全部已占用的用户名，之后通过内存索引查询用户名前缀
+     */
+    public void loadUsernameIndex(Connection connection) throws SQLException {
+        timer.timedRun("InGameProfileTableV3.loadUsernameIndex", () -> {
+            UsernameIndex index = new UsernameIndex();
+            try (PreparedStatement statement = connection.prepareStatement(selectAllUsernameSql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    index.put(ValueUtil.bytesToUuid(resultSet.getBytes(2)), resultSet.getString(1));
+                }
+            }
+            usernameIndex = index;
+            LoggerProvider.getLogger().debug(String.format("Loaded %d in game usernames into memory.", index.size()));
+        });
     }
 
     /**
@@ -137,41 +255,23 @@ public class InGameProfileTableV3 {
      * @return 是否存在数据
      */
     public boolean dataExists(UUID inGameUUID) throws SQLException {
-        String sql = String.format(
-                "SELECT 1 FROM %s WHERE %s = ? LIMIT 1"
-                , tableName, fieldInGameUuid
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
-            try (ResultSet resultSet = statement.executeQuery()) {
-                return resultSet.next();
-            }
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return dataExists(connection, inGameUUID);
         }
     }
 
+    public boolean dataExists(Connection connection, UUID inGameUUID) throws SQLException {
+        return get(connection, inGameUUID) != null;
+    }
+
     /**
      * 获得游戏内名字
      *
      * @param inGameUUID 游戏内 UUID
      */
     public String getUsername(UUID inGameUUID) throws SQLException {
-        String sql = String.format(
-                "SELECT %s FROM %s WHERE %s = ? LIMIT 1"
-                , fieldCurrentUsernameOriginal, tableName, fieldInGameUuid
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getString(1);
-                }
-            }
-        }
-        return null;
+        Pair<UUID, String> profile = get(inGameUUID);
+        return profile == null ? null : profile.getValue2();
     }
 
     /**
@@ -182,53 +282,91 @@ public class InGameProfileTableV3 {
      * @throws SQLException
      */
     public void updateUsername(UUID inGameUUID, String currentUsername) throws SQLException {
-        String sql = String.format(
-                "UPDATE %s SET %s = ?, %s = ? WHERE %s = ?"
-                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal, fieldInGameUuid
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setString(1, currentUsername.toLowerCase(Locale.ROOT));
-            statement.setString(2, currentUsername);
-            statement.setBytes(3, ValueUtil.uuidToBytes(inGameUUID));
-            statement.executeUpdate();
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            updateUsername(connection, inGameUUID, currentUsername);
         }
     }
 
+    public void updateUsername(Connection connection, UUID inGameUUID, String currentUsername) throws SQLException {
+        timer.timedRun("InGameProfileTableV3.updateUsername", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(updateUsernameSql)) {
+                statement.setString(1, currentUsername.toLowerCase(Locale.ROOT));
+                statement.setString(2, currentUsername);
+                statement.setBytes(3, ValueUtil.uuidToBytes(inGameUUID));
+                statement.executeUpdate();
+                updateIndex(connection, index -> index.put(inGameUUID, currentUsername.toLowerCase(Locale.ROOT)));
+            } finally {
+                invalidate(connection, inGameUUID, currentUsername);
+            }
+        });
+    }
+
     /**
      * 插入一条新的数据
      *
      * @param inGameUUID 游戏内 UUID
      */
     public void insertNewData(UUID inGameUUID, String currentUsername) throws SQLException {
-        String sql = String.format(
-                "INSERT INTO %s (%s, %s, %s) VALUES (?, ?, ?)"
-                , tableName, fieldInGameUuid, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
+        try (Connection connection = sqlManager.getPool().getConnection()) {
             connection.setAutoCommit(false);
-            statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
-            statement.setString(2, currentUsername.toLowerCase());
-            statement.setString(3, currentUsername);
-            statement.executeUpdate();
-            connection.commit();
+            boolean committed = false;
+            try {
+                insertNewData(connection, inGameUUID, currentUsername);
+                connection.commit();
+                committed = true;
+            } finally {
+                sqlManager.getProfileCache().completeTransaction(connection, committed);
+            }
         }
     }
 
+    public void insertNewData(Connection connection, UUID inGameUUID, String currentUsername) throws SQLException {
+        timer.timedRun("InGameProfileTableV3.insertNewData", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                statement.setString(2, currentUsername.toLowerCase(Locale.ROOT));
+                statement.setString(3, currentUsername);
+                statement.executeUpdate();
+                updateIndex(connection, index -> index.put(inGameUUID, currentUsername.toLowerCase(Locale.ROOT)));
+            } finally {
+                invalidate(connection, inGameUUID, currentUsername);
+            }
+        });
+    }
+
+    /**
+     * 占用一个游戏内 UUID，插入一条没有用户名的数据，由主键保证同一个 UUID 只会被占用一次
+     *
+     * @param inGameUUID 游戏内 UUID
+     * @return 是否占用成功，UUID 已被使用时返回 false
+     */
+    public boolean reserve(Connection connection, UUID inGameUUID) throws SQLException {
+        return timer.timed("InGameProfileTableV3.reserve", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(reserveSql)) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                statement.executeUpdate();
+                return true;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return false;
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection, () -> sqlManager.getProfileCache().invalidateInGameProfile(inGameUUID));
+            }
+        });
+    }
+
     public boolean remove(UUID uuid) throws SQLException {
-        String sql = String.format(
-                "DELETE FROM %s WHERE %s = ?"
-                , tableName, fieldInGameUuid
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setBytes(1, ValueUtil.uuidToBytes(uuid));
-            return statement.executeUpdate() == 1;
-        }
+        return timer.timed("InGameProfileTableV3.remove", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(deleteSql)
+            ) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(uuid));
+                boolean removed = statement.executeUpdate() == 1;
+                updateIndex(connection, index -> index.remove(uuid));
+                return removed;
+            } finally {
+                sqlManager.getProfileCache().invalidateInGameProfile(uuid);
+            }
+        });
     }
 
     /**
@@ -237,31 +375,54 @@ public class InGameProfileTableV3 {
      * @param currentUsername 用户名
      */
     public int eraseUsername(String currentUsername) throws SQLException {
-        String sql = String.format(
-                "UPDATE %s SET %s = ?, %s = ? WHERE LOWER(%s) = ?"
-                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal, fieldCurrentUsernameLowerCase
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setString(1, null);
-            statement.setString(2, null);
-            statement.setString(3, currentUsername.toLowerCase(Locale.ROOT));
-            return statement.executeUpdate();
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return eraseUsername(connection, currentUsername);
         }
     }
 
+    public int eraseUsername(Connection connection, String currentUsername) throws SQLException {
+        return timer.timed("InGameProfileTableV3.eraseUsername", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(eraseUsernameSql)) {
+                statement.setString(1, null);
+                statement.setString(2, null);
+                statement.setString(3, currentUsername.toLowerCase(Locale.ROOT));
+                int count = statement.executeUpdate();
+                updateIndex(connection, index -> index.removeUsername(currentUsername.toLowerCase(Locale.ROOT)));
+                return count;
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection, () -> sqlManager.getProfileCache().invalidateUsername(currentUsername));
+            }
+        });
+    }
+
     public int eraseAllUsername() throws SQLException {
-        String sql = String.format(
-                "UPDATE %s SET %s = ?, %s = ?"
-                , tableName, fieldCurrentUsernameLowerCase, fieldCurrentUsernameOriginal
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setString(1, null);
-            statement.setString(2, null);
-            return statement.executeUpdate();
-        }
+        return timer.timed("InGameProfileTableV3.eraseAllUsername", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(eraseAllUsernameSql)
+            ) {
+                statement.setString(1, null);
+                statement.setString(2, null);
+                int count = statement.executeUpdate();
+                updateIndex(connection, UsernameIndex::clear);
+                return count;
+            } finally {
+                sqlManager.getProfileCache().invalidateAllUsername();
+            }
+        });
+    }
+
+    // 数据提交后同步用户名索引
+    private void updateIndex(Connection connection, Consumer<UsernameIndex> action) throws SQLException {
+        UsernameIndex index = usernameIndex;
+        if (index == null) return;
+        sqlManager.getProfileCache().afterCommit(connection, () -> action.accept(index));
+    }
+
+    // 游戏内档案和用户名被修改
+    private void invalidate(Connection connection, UUID inGameUUID, String currentUsername) throws SQLException {
+        sqlManager.getProfileCache().invalidate(connection, () -> {
+            sqlManager.getProfileCache().invalidateInGameProfile(inGameUUID);
+            sqlManager.getProfileCache().invalidateUsername(currentUsername);
+        });
     }
 }
@@ -0,0 +1,169 @@
+package moe.caa.multilogin.core.database.table;
+
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.api.util.ValueUtil;
+import moe.caa.multilogin.core.database.SQLManager;
+import moe.caa.multilogin.core.database.pool.ISQLConnectionPool;
+import moe.caa.multilogin.core.metrics.SQLTimer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 登录缓存表
+ * 多个代理共用数据库时，保存验证通过但尚未进入游戏的玩家数据
+ */
+public class LoginCacheTableV1 {
+    private static final String fieldInGameUuid = "in_game_uuid";
+    private static final String fieldOnlineProfile = "online_profile";
+    private static final String fieldServiceId = "service_id";
+    private static final String fieldSignTime = "sign_time";
+    private static final String fieldExpireTime = "expire_time";
+    private final Supplier<ISQLConnectionPool> pool;
+    private final SQLTimer timer;
+    private final String tableName;
+    private final String selectSql;
+    private final String insertSql;
+    private final String deleteSql;
+    private final String deleteExpiredSql;
+
+    public LoginCacheTableV1(SQLManager sqlManager, String tableName) {
+        this(sqlManager::getPool, new SQLTimer(sqlManager.getCore().getMetricsRegistry().getTableLatency()), tableName);
+    }
+
+    // 只依赖连接池，测试时无需启动完整的核心
+    LoginCacheTableV1(Supplier<ISQLConnectionPool> pool, SQLTimer timer, String tableName) {
+        this.pool = pool;
+        this.timer = timer;
+        this.tableName = tableName;
+
+        // SQL 语句只在创建时拼接一次
+        this.selectSql = String.format(
+                "SELECT %s, %s, %s FROM %s WHERE %s = ? AND %s >= ? LIMIT 1"
+                , fieldOnlineProfile, fieldServiceId, fieldSignTime, tableName, fieldInGameUuid, fieldExpireTime
+        );
+        this.insertSql = String.format(
+                "INSERT INTO %s (%s, %s, %s, %s, %s) VALUES (?, ?, ?, ?, ?)"
+                , tableName, fieldInGameUuid, fieldOnlineProfile, fieldServiceId, fieldSignTime, fieldExpireTime
+        );
+        this.deleteSql = String.format(
+                "DELETE FROM %s WHERE %s = ?"
+                , tableName, fieldInGameUuid
+        );
+        this.deleteExpiredSql = String.format(
+                "DELETE FROM %s WHERE %s < ? LIMIT ?"
+                , tableName, fieldExpireTime
+        );
+    }
+
+    public void init(Connection connection) throws SQLException {
+        String sql = MessageFormat.format(
+                "CREATE TABLE IF NOT EXISTS {0} ( " +
+                        "{1} BINARY(16) NOT NULL, " +
+                        "{2} LONGTEXT NOT NULL, " +
+                        "{3} INTEGER NOT NULL, " +
+                        "{4} BIGINT NOT NULL, " +
+                        "{5} BIGINT NOT NULL, " +
+                        "PRIMARY KEY ( {1} ))"
+                , tableName, fieldInGameUuid, fieldOnlineProfile, fieldServiceId, fieldSignTime, fieldExpireTime);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * 写入一条登录缓存，覆盖该游戏内 UUID 已有的缓存
+     *
+     * @param inGameUUID    游戏内 UUID
+     * @param onlineProfile 在线档案 JSON
+     * @param serviceId     验证服务 ID
+     * @param signTime      验证通过的时间
+     * @param expireTime    过期时间
+     */
+    public void put(UUID inGameUUID, String onlineProfile, int serviceId, long signTime, long expireTime) throws SQLException {
+        timer.timedRun("LoginCacheTableV1.put", () -> {
+            try (Connection connection = pool.get().getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement delete = connection.prepareStatement(deleteSql);
+                     PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                    delete.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                    delete.executeUpdate();
+                    insert.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                    insert.setString(2, onlineProfile);
+                    insert.setInt(3, serviceId);
+                    insert.setLong(4, signTime);
+                    insert.setLong(5, expireTime);
+                    insert.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * 取出并删除一条未过期的登录缓存
+     *
+     * @param inGameUUID 游戏内 UUID
+     * @param now        当前时间
+     * @return 在线档案 JSON、验证服务 ID、验证通过的时间，不存在时为 null
+     */
+    public There<String, Integer, Long> take(UUID inGameUUID, long now) throws SQLException {
+        return timer.timed("LoginCacheTableV1.take", () -> {
+            try (Connection connection = pool.get().getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement select = connection.prepareStatement(selectSql);
+                     PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                    There<String, Integer, Long> result = null;
+                    select.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                    select.setLong(2, now);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        if (resultSet.next()) {
+                            result = new There<>(resultSet.getString(1), resultSet.getInt(2), resultSet.getLong(3));
+                        }
+                    }
+                    delete.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                    // 只有真正删除了数据的节点才能取得缓存
+                    if (delete.executeUpdate() == 0) result = null;
+                    connection.commit();
+                    return result;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * 分批删除过期的登录缓存
+     *
+     * @param now       当前时间
+     * @param batchSize 每批删除的数量
+     * @return 删除的数量
+     */
+    public int deleteExpired(long now, int batchSize) throws SQLException {
+        return timer.timed("LoginCacheTableV1.deleteExpired", () -> {
+            int total = 0;
+            try (Connection connection = pool.get().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(deleteExpiredSql)
+            ) {
+                int count;
+                do {
+                    statement.setLong(1, now);
+                    statement.setInt(2, batchSize);
+                    count = statement.executeUpdate();
+                    total += count;
+                } while (count >= batchSize);
+            }
+            return total;
+        });
+    }
+}
@@ -1,28 +1,57 @@
 package moe.caa.multilogin.core.database.table;
 
 import moe.caa.multilogin.api.util.Pair;
+import moe.caa.multilogin.core.database.ExpiringLruCache;
+import moe.caa.multilogin.core.database.ProfileCache;
 import moe.caa.multilogin.core.database.SQLManager;
+import moe.caa.multilogin.core.metrics.SQLTimer;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 皮肤修复缓存表
+ * 查询结果保存在内存中，热门皮肤不需要每次都从数据库读取两个长文本
  */
 public class SkinRestoredCacheTableV2 {
+    // 签名本就有效、不需要修复的皮肤，只比较引用
+    private static final Pair<String, String> NOT_RESTORED = new Pair<>(null, null);
     private static final String fieldCurrentSkinUrlSha256 = "current_skin_url_sha256";
     private static final String fieldCurrentSkinModel = "current_skin_model";
     private static final String fieldRestorerValue = "restorer_value";
     private static final String fieldRestorerSignature = "restorer_signature";
     private final SQLManager sqlManager;
+    private final SQLTimer timer;
+    private final LongAdder cacheHits;
+    private final LongAdder cacheNegativeHits;
+    private final LongAdder cacheMisses;
     private final String tableName;
+    private final String selectSql;
+    private final String insertSql;
 
     public SkinRestoredCacheTableV2(SQLManager sqlManager, String tableName) {
         this.sqlManager = sqlManager;
+        this.timer = new SQLTimer(sqlManager.getCore().getMetricsRegistry().getTableLatency());
+        MetricsRegistry.Family<LongAdder> lookups = sqlManager.getCore().getMetricsRegistry().getSkinRestoredCacheLookups();
+        this.cacheHits = lookups.get("hit");
+        this.cacheNegativeHits = lookups.get("negative_hit");
+        this.cacheMisses = lookups.get("miss");
         this.tableName = tableName;
+
+        // SQL 语句只在创建时拼接一次
+        this.selectSql = String.format(
+                "SELECT %s, %s FROM %s WHERE %s = ? AND %s = ? LIMIT 1"
+                , fieldRestorerValue, fieldRestorerSignature, tableName, fieldCurrentSkinUrlSha256, fieldCurrentSkinModel
+        );
+        this.insertSql = String.format(
+                "INSERT INTO %s (%s, %s, %s, %s) VALUES (?, ?, ?, ?) "
+                , tableName, fieldCurrentSkinUrlSha256, fieldCurrentSkinModel, fieldRestorerValue, fieldRestorerSignature
+        );
     }
 
     public void init(Connection connection) throws SQLException {
@@ -47,12 +76,40 @@ public class SkinRestoredCacheTableV2 {
      * @return 缓存的对象
      */
     public Pair<String, String> getCacheRestored(byte[] urlSha256, String model) throws SQLException {
-        String sql = String.format(
-                "SELECT %s, %s FROM %s WHERE %s = ? AND %s = ? LIMIT 1"
-                , fieldRestorerValue, fieldRestorerSignature, tableName, fieldCurrentSkinUrlSha256, fieldCurrentSkinModel
-        );
+        return timer.timed("SkinRestoredCacheTableV2.getCacheRestored", () -> {
+            ExpiringLruCache<ProfileCache.SkinKey, Pair<String, String>> cache = sqlManager.getProfileCache().getSkinRestored();
+            ProfileCache.SkinKey key = new ProfileCache.SkinKey(urlSha256, model);
+            Pair<String, String> cached = cache.get(key);
+            if (cached == NOT_RESTORED) {
+                cacheNegativeHits.increment();
+                return null;
+            }
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+            cacheMisses.increment();
+            long stamp = cache.stamp();
+            Pair<String, String> restored = selectRestored(urlSha256, model);
+            cache.put(key, restored, stamp);
+            return restored;
+        });
+    }
+
+    /**
+     * 记录该皮肤的签名本就有效，不需要修复，再次登录时不再查询数据库
+     * 只在签名校验通过后调用，需要修复的皮肤不能缓存为没有记录，否则看不到其他代理写入的修复结果
+     *
+     * @param urlSha256 皮肤 URL
+     * @param model     皮肤模型
+     */
+    public void cacheSignatureValid(byte[] urlSha256, String model) {
+        sqlManager.getProfileCache().getSkinRestored().putIfAbsent(new ProfileCache.SkinKey(urlSha256, model), NOT_RESTORED);
+    }
+
+    private Pair<String, String> selectRestored(byte[] urlSha256, String model) throws SQLException {
         try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
+             PreparedStatement statement = connection.prepareStatement(selectSql)
         ) {
             statement.setBytes(1, urlSha256);
             statement.setString(2, model);
@@ -74,18 +131,21 @@ public class SkinRestoredCacheTableV2 {
      * @param signature 签名
      */
     public void insertNew(byte[] urlSha256, String model, String value, String signature) throws SQLException {
-        String sql = String.format(
-                "INSERT INTO %s (%s, %s, %s, %s) VALUES (?, ?, ?, ?) "
-                , tableName, fieldCurrentSkinUrlSha256, fieldCurrentSkinModel, fieldRestorerValue, fieldRestorerSignature
-        );
-        try (Connection connection = sqlManager.getPool().getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)
-        ) {
-            statement.setBytes(1, urlSha256);
-            statement.setString(2, model);
-            statement.setString(3, value);
-            statement.setString(4, signature);
-            statement.executeUpdate();
-        }
+        timer.timedRun("SkinRestoredCacheTableV2.insertNew", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(insertSql)
+            ) {
+                statement.setBytes(1, urlSha256);
+                statement.setString(2, model);
+                statement.setString(3, value);
+                statement.setString(4, signature);
+                statement.executeUpdate();
+            }
+            // 使读取中的旧结果失效后直接写入新记录
+            ExpiringLruCache<ProfileCache.SkinKey, Pair<String, String>> cache = sqlManager.getProfileCache().getSkinRestored();
+            ProfileCache.SkinKey key = new ProfileCache.SkinKey(urlSha256, model);
+            cache.invalidate(key);
+            cache.put(key, new Pair<>(value, signature), cache.stamp());
+        });
     }
 }
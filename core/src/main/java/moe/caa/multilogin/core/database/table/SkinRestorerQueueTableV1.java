@@ -0,0 +1,143 @@
+package moe.caa.multilogin.core.database.table;
+
+import moe.caa.multilogin.api.util.ValueUtil;
+import moe.caa.multilogin.core.database.SQLManager;
+import moe.caa.multilogin.core.metrics.SQLTimer;
+import moe.caa.multilogin.core.skinrestorer.SkinRestorerJob;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 皮肤修复队列表
+ * 保存等待中的修复任务，重启后继续修复
+ */
+public class SkinRestorerQueueTableV1 {
+    private static final String fieldSkinUrlSha256 = "skin_url_sha256";
+    private static final String fieldSkinModel = "skin_model";
+    private static final String fieldSkinUrl = "skin_url";
+    private static final String fieldServiceId = "service_id";
+    private static final String fieldOnlineUuid = "online_uuid";
+    private static final String fieldCreateTime = "create_time";
+    private static final String fieldAttempts = "attempts";
+    private static final String fieldNotBefore = "not_before";
+    private final SQLManager sqlManager;
+    private final SQLTimer timer;
+    private final String tableName;
+    private final String selectAllSql;
+    private final String insertSql;
+    private final String deleteSql;
+
+    public SkinRestorerQueueTableV1(SQLManager sqlManager, String tableName) {
+        this.sqlManager = sqlManager;
+        this.timer = new SQLTimer(sqlManager.getCore().getMetricsRegistry().getTableLatency());
+        this.tableName = tableName;
+
+        // SQL 语句只在创建时拼接一次
+        this.selectAllSql = String.format(
+                "SELECT %s, %s, %s, %s, %s, %s, %s, %s FROM %s ORDER BY %s"
+                , fieldSkinUrlSha256, fieldSkinModel, fieldSkinUrl, fieldServiceId, fieldOnlineUuid, fieldCreateTime, fieldAttempts, fieldNotBefore, tableName, fieldCreateTime
+        );
+        this.insertSql = String.format(
+                "INSERT INTO %s (%s, %s, %s, %s, %s, %s, %s, %s) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+                , tableName, fieldSkinUrlSha256, fieldSkinModel, fieldSkinUrl, fieldServiceId, fieldOnlineUuid, fieldCreateTime, fieldAttempts, fieldNotBefore
+        );
+        this.deleteSql = String.format(
+                "DELETE FROM %s WHERE %s = ? AND %s = ?"
+                , tableName, fieldSkinUrlSha256, fieldSkinModel
+        );
+    }
+
+    public void init(Connection connection) throws SQLException {
+        String sql = MessageFormat.format(
+                "CREATE TABLE IF NOT EXISTS {0} ( " +
+                        "{1} BINARY(32) NOT NULL, " +
+                        "{2} VARCHAR(16) NOT NULL, " +
+                        "{3} LONGTEXT NOT NULL, " +
+                        "{4} INTEGER NOT NULL, " +
+                        "{5} BINARY(16) NOT NULL, " +
+                        "{6} BIGINT NOT NULL, " +
+                        "{7} INTEGER NOT NULL, " +
+                        "{8} BIGINT NOT NULL, " +
+                        "PRIMARY KEY ( {1}, {2} ))"
+                , tableName, fieldSkinUrlSha256, fieldSkinModel, fieldSkinUrl, fieldServiceId, fieldOnlineUuid, fieldCreateTime, fieldAttempts, fieldNotBefore);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * 按加入队列的顺序读取所有任务
+     */
+    public List<SkinRestorerJob> getAll() throws SQLException {
+        return timer.timed("SkinRestorerQueueTableV1.getAll", () -> {
+            List<SkinRestorerJob> jobs = new ArrayList<>();
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(selectAllSql);
+                 ResultSet resultSet = statement.executeQuery()
+            ) {
+                while (resultSet.next()) {
+                    SkinRestorerJob job = new SkinRestorerJob(resultSet.getBytes(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getInt(4), ValueUtil.bytesToUuid(resultSet.getBytes(5)), resultSet.getLong(6));
+                    job.setAttempts(resultSet.getInt(7));
+                    job.setNotBefore(resultSet.getLong(8));
+                    jobs.add(job);
+                }
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * 写入一个任务，覆盖同一皮肤已有的任务，重试时用于更新尝试次数和重试时间
+     */
+    public void put(SkinRestorerJob job) throws SQLException {
+        timer.timedRun("SkinRestorerQueueTableV1.put", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement delete = connection.prepareStatement(deleteSql);
+                     PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                    delete.setBytes(1, job.getUrlSha256());
+                    delete.setString(2, job.getModel());
+                    delete.executeUpdate();
+                    insert.setBytes(1, job.getUrlSha256());
+                    insert.setString(2, job.getModel());
+                    insert.setString(3, job.getUrl());
+                    insert.setInt(4, job.getServiceId());
+                    insert.setBytes(5, ValueUtil.uuidToBytes(job.getOnlineUUID()));
+                    insert.setLong(6, job.getCreateTime());
+                    insert.setInt(7, job.getAttempts());
+                    insert.setLong(8, job.getNotBefore());
+                    insert.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * 删除一个任务
+     *
+     * @param urlSha256 皮肤 URL
+     * @param model     皮肤模型
+     */
+    public void remove(byte[] urlSha256, String model) throws SQLException {
+        timer.timedRun("SkinRestorerQueueTableV1.remove", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(deleteSql)
+            ) {
+                statement.setBytes(1, urlSha256);
+                statement.setString(2, model);
+                statement.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,569 @@
+package moe.caa.multilogin.core.database.table;
+
+import lombok.AllArgsConstructor;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.api.util.ValueUtil;
+import moe.caa.multilogin.core.database.ExpiringLruCache;
+import moe.caa.multilogin.core.database.ProfileCache;
+import moe.caa.multilogin.core.database.SQLManager;
+import moe.caa.multilogin.core.database.WriteBehindQueue;
+import moe.caa.multilogin.core.metrics.SQLTimer;
+
+import java.sql.*;
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * 玩家数据表
+ */
+public class UserDataTableV4 {
+    private static final String fieldOnlineUUID = "online_uuid";
+    private static final String fieldOnlineName = "online_name";
+    private static final String fieldOnlineNameLowerCase = "online_name_lower_case";
+    private static final String fieldServiceId = "service_id";
+    private static final String fieldInGameProfileUuid = "in_game_profile_uuid";
+    private static final String fieldWhitelist = "whitelist";
+    private final SQLManager sqlManager;
+    private final SQLTimer timer;
+    private final String tableName;
+    private final String tableNameV3;
+    private final String tableNameV2;
+    private final String selectSql;
+    private final String selectOnlineUUIDSql;
+    private final String selectServiceIdsSql;
+    private final String selectOnlineProfilesSql;
+    private final String updateInGameUUIDSql;
+    private final String insertSql;
+    private final String updateWhitelistSql;
+    private final String selectWhitelistByInGameUUIDSql;
+    private final String updateWhitelistByInGameUUIDSql;
+    private final String updateOnlineNameSql;
+
+    public UserDataTableV4(SQLManager sqlManager, String tableName, String tableNameV3, String tableNameV2) {
+        this.sqlManager = sqlManager;
+        this.timer = new SQLTimer(sqlManager.getCore().getMetricsRegistry().getTableLatency());
+        this.tableName = tableName;
+        this.tableNameV3 = tableNameV3;
+        this.tableNameV2 = tableNameV2;
+
+        // SQL 语句只在创建时拼接一次
+        this.selectSql = String.format(
+                "SELECT %s, %s, %s FROM %s WHERE %s = ? AND %s = ? LIMIT 1"
+                , fieldOnlineName, fieldInGameProfileUuid, fieldWhitelist, tableName, fieldOnlineUUID, fieldServiceId
+        );
+        this.selectOnlineUUIDSql = String.format(
+                "SELECT %s FROM %s WHERE %s = ? AND %s = ? LIMIT 1"
+                , fieldOnlineUUID, tableName, fieldOnlineNameLowerCase, fieldServiceId
+        );
+        this.selectServiceIdsSql = String.format(
+                "SELECT %s FROM %s WHERE %s = ?"
+                , fieldServiceId, tableName, fieldInGameProfileUuid
+        );
+        this.selectOnlineProfilesSql = String.format(
+                "SELECT %s, %s, %s FROM %s WHERE %s = ?"
+                , fieldOnlineUUID, fieldOnlineName, fieldServiceId, tableName, fieldInGameProfileUuid
+        );
+        this.updateInGameUUIDSql = String.format(
+                "UPDATE %s SET %s = ? WHERE %s = ? AND %s = ? LIMIT 1"
+                , tableName, fieldInGameProfileUuid, fieldOnlineUUID, fieldServiceId
+        );
+        this.insertSql = String.format(
+                "INSERT INTO %s (%s, %s, %s, %s, %s) VALUES (?, ?, ?, ?, ?) "
+                , tableName, fieldOnlineUUID, fieldServiceId, fieldOnlineName, fieldOnlineNameLowerCase, fieldInGameProfileUuid
+        );
+        this.updateWhitelistSql = String.format(
+                "UPDATE %s SET %s = ? WHERE %s = ? AND %s = ? LIMIT 1"
+                , tableName, fieldWhitelist, fieldOnlineUUID, fieldServiceId
+        );
+        this.selectWhitelistByInGameUUIDSql = String.format(
+                "SELECT %s FROM %s WHERE %s = ? LIMIT 1"
+                , fieldWhitelist, tableName, fieldInGameProfileUuid
+        );
+        this.updateWhitelistByInGameUUIDSql = String.format(
+                "UPDATE %s SET %s = ? WHERE %s = ? LIMIT 1"
+                , tableName, fieldWhitelist, fieldInGameProfileUuid
+        );
+        this.updateOnlineNameSql = String.format(
+                "UPDATE %s SET %s = ?, %s = ? WHERE %s = ? AND %s = ? LIMIT 1"
+                , tableName, fieldOnlineName, fieldOnlineNameLowerCase, fieldOnlineUUID, fieldServiceId
+        );
+    }
+
+    public void init(Connection connection) throws SQLException {
+        String sql = MessageFormat.format(
+                "CREATE TABLE IF NOT EXISTS {0} ( " +
+                        "{1} BINARY(16) NOT NULL, " +
+                        "{2} INTEGER NOT NULL, " +
+                        "{3} VARCHAR(64) DEFAULT NULL, " +
+                        "{4} VARCHAR(64) DEFAULT NULL, " +
+                        "{5} BINARY(16) DEFAULT NULL, " +
+                        "{6} BOOL DEFAULT FALSE, " +
+                        "PRIMARY KEY ( {1}, {2} ))"
+                , tableName, fieldOnlineUUID, fieldServiceId, fieldOnlineName, fieldOnlineNameLowerCase, fieldInGameProfileUuid, fieldWhitelist);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.executeUpdate();
+        }
+        // 按小写在线名称和游戏内 UUID 查询时使用索引
+        createIndex(connection, tableName + "_online_name_idx", fieldOnlineNameLowerCase + ", " + fieldServiceId);
+        createIndex(connection, tableName + "_in_game_idx", fieldInGameProfileUuid);
+
+        // 建表会隐式提交，而数据复制要到初始化结束才提交，因此不能以表是否存在判断是否已升级
+        // 新表没有数据时才尝试从老表升级
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + tableName + " LIMIT 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next()) return;
+        }
+        if (hasRows(connection, tableNameV3)) {
+            migrateFromV3(connection);
+        } else if (hasRows(connection, tableNameV2)) {
+            migrateFromV2(connection);
+        }
+    }
+
+    private void createIndex(Connection connection, String indexName, String columns) throws SQLException {
+        if (indexExists(connection, indexName)) return;
+        try (PreparedStatement statement = connection.prepareStatement(
+                String.format("CREATE INDEX %s ON %s (%s)", indexName, tableName, columns)
+        )) {
+            statement.executeUpdate();
+        }
+    }
+
+    // MySQL 不支持 CREATE INDEX IF NOT EXISTS，从元数据中查找，H2 的表名为大写
+    private boolean indexExists(Connection connection, String indexName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String table : new String[]{tableName, tableName.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet resultSet = metaData.getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+                while (resultSet.next()) {
+                    if (indexName.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 老表不存在时视为没有数据
+    private static boolean hasRows(Connection connection, String tableName) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + tableName + " LIMIT 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next();
+        } catch (SQLException ignored) {
+            return false;
+        }
+    }
+
+    // 在数据库内直接复制 V3 表的数据，同时填充小写在线名称
+    private void migrateFromV3(Connection connection) throws SQLException {
+        LoggerProvider.getLogger().info("Updating user data...");
+        String sql = String.format(
+                "INSERT INTO %s (%s, %s, %s, %s, %s, %s) SELECT %s, %s, %s, LOWER(%s), %s, %s FROM %s"
+                , tableName, fieldOnlineUUID, fieldServiceId, fieldOnlineName, fieldOnlineNameLowerCase, fieldInGameProfileUuid, fieldWhitelist
+                , fieldOnlineUUID, fieldServiceId, fieldOnlineName, fieldOnlineName, fieldInGameProfileUuid, fieldWhitelist, tableNameV3
+        );
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int count = statement.executeUpdate();
+            LoggerProvider.getLogger().info("Updated user data, total " + count + ".");
+        }
+    }
+
+    private void migrateFromV2(Connection connection) throws SQLException {
+        LoggerProvider.getLogger().info("Updating user data...");
+        @AllArgsConstructor
+        class V2Entry {
+            private final byte[] onlineUUID;
+            private final int serviceId;
+            private final byte[] inGameProfileUUID;
+            private final boolean whitelist;
+        }
+        // 读老表
+        List<V2Entry> oldData = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT online_uuid, yggdrasil_id, in_game_profile_uuid, whitelist FROM " + tableNameV2);
+             ResultSet resultSet = statement.executeQuery();) {
+            while (resultSet.next()) {
+                oldData.add(new V2Entry(resultSet.getBytes(1),
+                        resultSet.getBytes(2)[0],
+                        resultSet.getBytes(3),
+                        resultSet.getBoolean(4))
+                );
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                String.format(
+                        "INSERT INTO %s (%s, %s, %s, %s) VALUES (?, ?, ?, ?)", tableName, fieldOnlineUUID, fieldServiceId, fieldInGameProfileUuid, fieldWhitelist
+                )
+        )) {
+            for (V2Entry datum : oldData) {
+                statement.setBytes(1, datum.onlineUUID);
+                statement.setInt(2, datum.serviceId);
+                statement.setBytes(3, datum.inGameProfileUUID);
+                statement.setBoolean(4, datum.whitelist);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        LoggerProvider.getLogger().info("Updated user data, total " + oldData.size() + ".");
+    }
+
+    public There<String, UUID, Boolean> get(UUID onlineUUID, int serviceId) throws SQLException {
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return get(connection, onlineUUID, serviceId);
+        }
+    }
+
+    /**
+     * 在指定连接中检索用户数据，尚未写入的延迟更新会覆盖数据库中的值
+     */
+    public There<String, UUID, Boolean> get(Connection connection, UUID onlineUUID, int serviceId) throws SQLException {
+        return timer.timed("UserDataTableV4.get", () -> {
+            There<String, UUID, Boolean> data = getStored(connection, onlineUUID, serviceId);
+            if (data == null) return null;
+            WriteBehindQueue writeBehindQueue = sqlManager.getWriteBehindQueue();
+            String onlineName = writeBehindQueue.getPendingOnlineName(onlineUUID, serviceId);
+            Boolean whitelist = writeBehindQueue.getPendingWhitelist(onlineUUID, serviceId);
+            return new There<>(
+                    onlineName == null ? data.getValue1() : onlineName,
+                    data.getValue2(),
+                    whitelist == null ? data.getValue3() : whitelist);
+        });
+    }
+
+    // 读取数据库中已存储的值，优先使用缓存
+    private There<String, UUID, Boolean> getStored(Connection connection, UUID onlineUUID, int serviceId) throws SQLException {
+        ProfileCache.UserKey key = new ProfileCache.UserKey(onlineUUID, serviceId);
+        ExpiringLruCache<ProfileCache.UserKey, There<String, UUID, Boolean>> cache = sqlManager.getProfileCache().getUserData();
+        There<String, UUID, Boolean> cached = cache.get(key);
+        if (cached != null) return cached;
+        long stamp = cache.stamp();
+        There<String, UUID, Boolean> data = selectStored(connection, onlineUUID, serviceId);
+        cache.put(key, data, stamp);
+        return data;
+    }
+
+    private There<String, UUID, Boolean> selectStored(Connection connection, UUID onlineUUID, int serviceId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setBytes(1, ValueUtil.uuidToBytes(onlineUUID));
+            statement.setInt(2, serviceId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return new There<>(
+                            resultSet.getString(1),
+                            Optional.ofNullable(resultSet.getBytes(2)).map(ValueUtil::bytesToUuid).orElse(null),
+                            resultSet.getBoolean(3));
+                }
+            }
+        }
+        return null;
+    }
+
+    public UUID getOnlineUUID(String username, int serviceId) throws SQLException {
+        return timer.timed("UserDataTableV4.getOnlineUUID", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(selectOnlineUUIDSql)
+            ) {
+                statement.setString(1, username.toLowerCase(Locale.ROOT));
+                statement.setInt(2, serviceId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return Optional.ofNullable(resultSet.getBytes(1)).map(ValueUtil::bytesToUuid).orElse(null);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 从数据库中检索用户游戏内 UUID
+     *
+     * @param onlineUUID 用户在线 UUID
+     * @param serviceId  用户在线 UUID 提供的验证服务器 ID
+     * @return 检索到的用户游戏内 UUID
+     */
+    public UUID getInGameUUID(UUID onlineUUID, int serviceId) throws SQLException {
+        There<String, UUID, Boolean> data = get(onlineUUID, serviceId);
+        return data == null ? null : data.getValue2();
+    }
+
+    /**
+     * 从数据库中检索用户登录时所用的账户验证服务器 ID
+     *
+     * @param inGameUUID 用户游戏内 UUID
+     * @return 检索到的用户在线信息
+     */
+    public Set<Integer> getOnlineServiceIds(UUID inGameUUID) throws SQLException {
+        return timer.timed("UserDataTableV4.getOnlineServiceIds", () -> {
+            ExpiringLruCache<UUID, Set<Integer>> cache = sqlManager.getProfileCache().getOnlineServiceIds();
+            Set<Integer> cached = cache.get(inGameUUID);
+            if (cached != null) return cached;
+            long stamp = cache.stamp();
+            Set<Integer> result = new HashSet<>();
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(selectServiceIdsSql)
+            ) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(resultSet.getInt(1));
+                    }
+                }
+            }
+            Set<Integer> set = Collections.unmodifiableSet(result);
+            cache.put(inGameUUID, set, stamp);
+            return set;
+        });
+    }
+
+
+    /**
+     * 返回档案集合
+     *
+     * @param inGameUUID 游戏内 UUID
+     */
+    public Set<There<UUID, String, Integer>> getOnlineProfiles(UUID inGameUUID) throws SQLException {
+        return timer.timed("UserDataTableV4.getOnlineProfiles", () -> {
+            Set<There<UUID, String, Integer>> result = new HashSet<>();
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(selectOnlineProfilesSql)
+            ) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(new There<>(
+                                Optional.ofNullable(resultSet.getBytes(1)).map(ValueUtil::bytesToUuid).orElse(null),
+                                resultSet.getString(2),
+                                resultSet.getInt(3)
+                        ));
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(result);
+        });
+    }
+
+    /**
+     * 设置游戏内 UUID
+     *
+     * @param onlineUUID    在线 UUID
+     * @param serviceId     service ID
+     * @param newInGameUUID 新的游戏内 UUID
+     */
+    public int setInGameUUID(UUID onlineUUID, int serviceId, UUID newInGameUUID) throws SQLException {
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            // 读取修改前的游戏内 UUID，只需使它和新的游戏内 UUID 的缓存失效
+            There<String, UUID, Boolean> previous = selectStored(connection, onlineUUID, serviceId);
+            return setInGameUUID(connection, onlineUUID, serviceId, previous == null ? null : previous.getValue2(), newInGameUUID);
+        }
+    }
+
+    /**
+     * 在指定连接中设置游戏内 UUID
+     *
+     * @param previousInGameUUID 在同一事务中读取的修改前的游戏内 UUID，没有时为 null
+     */
+    public int setInGameUUID(Connection connection, UUID onlineUUID, int serviceId, UUID previousInGameUUID, UUID newInGameUUID) throws SQLException {
+        return timer.timed("UserDataTableV4.setInGameUUID", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(updateInGameUUIDSql)) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(newInGameUUID));
+                statement.setBytes(2, ValueUtil.uuidToBytes(onlineUUID));
+                statement.setInt(3, serviceId);
+                return statement.executeUpdate();
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection,
+                        () -> sqlManager.getProfileCache().invalidateUserInGameUUID(onlineUUID, serviceId, previousInGameUUID, newInGameUUID));
+            }
+        });
+    }
+
+    /**
+     * 查询数据是否存在
+     *
+     * @param onlineUUID  在线UUID
+     * @param serviceId service Id
+     */
+    public boolean dataExists(UUID onlineUUID, int serviceId) throws SQLException {
+        return timer.timed("UserDataTableV4.dataExists", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection()) {
+                return getStored(connection, onlineUUID, serviceId) != null;
+            }
+        });
+    }
+
+    /**
+     * 插入一条用户数据
+     *
+     * @param onlineUUID  用户在线 UUID
+     * @param serviceId 用户在线 UUID 提供的验证服务器 ID
+     * @param inGameUUID  新的用户在游戏内的 UUID
+     * @return 数据操作量
+     */
+    public int insertNewData(UUID onlineUUID, int serviceId, String onlineName, UUID inGameUUID) throws SQLException {
+        try (Connection connection = sqlManager.getPool().getConnection()) {
+            return insertNewData(connection, onlineUUID, serviceId, onlineName, inGameUUID);
+        }
+    }
+
+    public int insertNewData(Connection connection, UUID onlineUUID, int serviceId, String onlineName, UUID inGameUUID) throws SQLException {
+        return timer.timed("UserDataTableV4.insertNewData", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(onlineUUID));
+                statement.setInt(2, serviceId);
+                statement.setString(3, onlineName);
+                statement.setString(4, toLowerCase(onlineName));
+                if (inGameUUID == null) {
+                    statement.setNull(5, Types.BINARY);
+                } else {
+                    statement.setBytes(5, ValueUtil.uuidToBytes(inGameUUID));
+                }
+                return statement.executeUpdate();
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection, () -> {
+                    sqlManager.getProfileCache().invalidateUserData(onlineUUID, serviceId);
+                    if (inGameUUID != null) sqlManager.getProfileCache().getOnlineServiceIds().invalidate(inGameUUID);
+                });
+            }
+        });
+    }
+
+    /**
+     * 设置白名单
+     *
+     * @param onlineUUID  在线 UUID
+     * @param serviceId service Id
+     * @param whitelist   新的白名单
+     */
+    public void setWhitelist(UUID onlineUUID, int serviceId, boolean whitelist) throws SQLException {
+        timer.timedRun("UserDataTableV4.setWhitelist", () -> {
+            // 先写入延迟更新，避免其覆盖本次修改
+            sqlManager.getWriteBehindQueue().flush();
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(updateWhitelistSql)
+            ) {
+                statement.setBoolean(1, whitelist);
+                statement.setBytes(2, ValueUtil.uuidToBytes(onlineUUID));
+                statement.setInt(3, serviceId);
+                statement.executeUpdate();
+            } finally {
+                sqlManager.getProfileCache().invalidateUserData(onlineUUID, serviceId);
+            }
+        });
+    }
+
+    /**
+     * 查询白名单
+     */
+    public boolean hasWhitelist(UUID onlineUUID, int serviceId) throws SQLException {
+        There<String, UUID, Boolean> data = get(onlineUUID, serviceId);
+        return data != null && data.getValue3();
+    }
+
+    /**
+     * 查询白名单
+     */
+    public boolean hasWhitelist(UUID inGameUUID) throws SQLException {
+        return timer.timed("UserDataTableV4.hasWhitelistByInGameUUID", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(selectWhitelistByInGameUUIDSql)
+            ) {
+                statement.setBytes(1, ValueUtil.uuidToBytes(inGameUUID));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getBoolean(1);
+                    }
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 设置白名单
+     */
+    public void setWhitelist(UUID inGameUUID, boolean whitelist) throws SQLException {
+        timer.timedRun("UserDataTableV4.setWhitelistByInGameUUID", () -> {
+            // 先写入延迟更新，避免其覆盖本次修改
+            sqlManager.getWriteBehindQueue().flush();
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(updateWhitelistByInGameUUIDSql)
+            ) {
+                statement.setBoolean(1, whitelist);
+                statement.setBytes(2, ValueUtil.uuidToBytes(inGameUUID));
+                statement.executeUpdate();
+            } finally {
+                sqlManager.getProfileCache().invalidateUserDataByInGameUUID(inGameUUID);
+            }
+        });
+    }
+
+    public void setOnlineName(UUID onlineUUID, int serviceId, String onlineName) throws SQLException {
+        timer.timedRun("UserDataTableV4.setOnlineName", () -> {
+            try (Connection connection = sqlManager.getPool().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(updateOnlineNameSql)
+            ) {
+                statement.setString(1, onlineName);
+                statement.setString(2, toLowerCase(onlineName));
+                statement.setBytes(3, ValueUtil.uuidToBytes(onlineUUID));
+                statement.setInt(4, serviceId);
+                statement.executeUpdate();
+            } finally {
+                sqlManager.getProfileCache().invalidateUserData(onlineUUID, serviceId);
+            }
+        });
+    }
+
+    public String getOnlineName(UUID onlineUUID, int serviceId) throws SQLException {
+        There<String, UUID, Boolean> data = get(onlineUUID, serviceId);
+        return data == null ? null : data.getValue1();
+    }
+
+    /**
+     * 批量设置在线名称
+     *
+     * @param connection 连接
+     * @param entries    在线 UUID、service ID、在线名称
+     */
+    public void batchSetOnlineName(Connection connection, Collection<There<UUID, Integer, String>> entries) throws SQLException {
+        timer.timedRun("UserDataTableV4.batchSetOnlineName", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(updateOnlineNameSql)) {
+                for (There<UUID, Integer, String> entry : entries) {
+                    statement.setString(1, entry.getValue3());
+                    statement.setString(2, toLowerCase(entry.getValue3()));
+                    statement.setBytes(3, ValueUtil.uuidToBytes(entry.getValue1()));
+                    statement.setInt(4, entry.getValue2());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection,
+                        () -> entries.forEach(e -> sqlManager.getProfileCache().invalidateUserData(e.getValue1(), e.getValue2())));
+            }
+        });
+    }
+
+    /**
+     * 批量设置白名单
+     *
+     * @param connection 连接
+     * @param entries    在线 UUID、service ID、白名单
+     */
+    public void batchSetWhitelist(Connection connection, Collection<There<UUID, Integer, Boolean>> entries) throws SQLException {
+        timer.timedRun("UserDataTableV4.batchSetWhitelist", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(updateWhitelistSql)) {
+                for (There<UUID, Integer, Boolean> entry : entries) {
+                    statement.setBoolean(1, entry.getValue3());
+                    statement.setBytes(2, ValueUtil.uuidToBytes(entry.getValue1()));
+                    statement.setInt(3, entry.getValue2());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } finally {
+                sqlManager.getProfileCache().invalidate(connection,
+                        () -> entries.forEach(e -> sqlManager.getProfileCache().invalidateUserData(e.getValue1(), e.getValue2())));
+            }
+        });
+    }
+
+    private static String toLowerCase(String onlineName) {
+        return onlineName == null ? null : onlineName.toLowerCase(Locale.ROOT);
+    }
+}
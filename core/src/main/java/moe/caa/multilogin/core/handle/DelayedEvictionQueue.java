@@ -0,0 +1,60 @@
+package moe.caa.multilogin.core.handle;
+
+import lombok.AllArgsConstructor;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 延迟移除队列
+ * 记录在指定时间后需要移除的缓存条目，到期后由定时任务取出，不需要遍历整个缓存
+ */
+public class DelayedEvictionQueue<K, V> {
+    private final DelayQueue<Eviction<K, V>> queue = new DelayQueue<>();
+
+    /**
+     * 安排在一段时间后移除条目
+     *
+     * @param key      键
+     * @param expected 安排时的值，移除时值已被更改则不应移除
+     * @param delay    延迟，单位毫秒
+     */
+    public void schedule(K key, V expected, long delay) {
+        queue.add(new Eviction<>(key, expected, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+    }
+
+    /**
+     * 取出所有已到期的条目，交给移除函数处理，不会阻塞
+     *
+     * @param remover 移除函数，参数为键和安排时的值
+     */
+    public void drain(BiConsumer<K, V> remover) {
+        Eviction<K, V> eviction;
+        while ((eviction = queue.poll()) != null) {
+            remover.accept(eviction.key, eviction.expected);
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @AllArgsConstructor
+    private static class Eviction<K, V> implements Delayed {
+        private final K key;
+        private final V expected;
+        private final long deadline;
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(deadline, ((Eviction<?, ?>) o).deadline);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package moe.caa.multilogin.core.handle;
+
+import java.util.UUID;
+
+/**
+ * 登录缓存存储
+ * 保存验证通过但尚未进入游戏的玩家数据，由代理端写入，玩家进入游戏时取出
+ */
+public interface LoginCacheStore {
+
+    /**
+     * 写入登录缓存
+     *
+     * @param inGameUUID 游戏内 UUID
+     * @param entry      登录数据
+     */
+    void put(UUID inGameUUID, PlayerHandler.Entry entry);
+
+    /**
+     * 取出并移除登录缓存
+     *
+     * @param inGameUUID 游戏内 UUID
+     * @return 登录数据，不存在时为 null
+     */
+    PlayerHandler.Entry take(UUID inGameUUID);
+
+    /**
+     * 移除已过期的登录缓存，由 PlayerHandler 每秒调用一次，不应阻塞
+     */
+    default void evictExpired() {
+    }
+
+    /**
+     * 获得存储名称
+     */
+    String name();
+}
@@ -0,0 +1,41 @@
+package moe.caa.multilogin.core.handle;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 保存在本进程内存中的登录缓存，只适用于单个代理的部署
+ */
+public class MemoryLoginCacheStore implements LoginCacheStore {
+    // inGameUUID \ Entry
+    private final Map<UUID, PlayerHandler.Entry> loginCache = new ConcurrentHashMap<>();
+    // 验证通过后一直没有进入游戏的数据到期移除
+    private final DelayedEvictionQueue<UUID, PlayerHandler.Entry> evictions = new DelayedEvictionQueue<>();
+    private final long expire;
+
+    public MemoryLoginCacheStore(long expire) {
+        this.expire = expire;
+    }
+
+    @Override
+    public void put(UUID inGameUUID, PlayerHandler.Entry entry) {
+        loginCache.put(inGameUUID, entry);
+        evictions.schedule(inGameUUID, entry, expire);
+    }
+
+    @Override
+    public void evictExpired() {
+        evictions.drain(loginCache::remove);
+    }
+
+    @Override
+    public PlayerHandler.Entry take(UUID inGameUUID) {
+        return loginCache.remove(inGameUUID);
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+}
@@ -1,6 +1,7 @@
 package moe.caa.multilogin.core.handle;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import moe.caa.multilogin.api.auth.GameProfile;
 import moe.caa.multilogin.api.handle.HandleResult;
@@ -13,40 +14,89 @@ import moe.caa.multilogin.core.main.MultiCore;
 
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * 数据缓存中心
  */
 public class PlayerHandler implements HandlerAPI {
 
+    // 玩家退出游戏后数据保留的时间
+    private static final long EVICTION_DELAY = 10 * 1000;
+    // 检查没有退出事件的离线数据的间隔
+    private static final long SWEEP_INTERVAL = 60 * 1000;
     private final MultiCore core;
 
     // inGameUUID \ Entry
     private final Map<UUID, Entry> cache;
 
-    // inGameUUID \ Entry
+    // onlineUUID + serviceId \ inGameUUID
+    // cache 的反向索引，只在修改 cache 的同时修改
+    private final Map<OnlineKey, UUID> onlineIndex = new ConcurrentHashMap<>();
+
+    // 玩家退出游戏后延迟移除其数据
+    private final DelayedEvictionQueue<UUID, Entry> evictions = new DelayedEvictionQueue<>();
+
     // 表示登录缓存
     @Getter
-    private final Map<UUID, Entry> loginCache;
+    private LoginCacheStore loginCacheStore;
+
+    // inGameUUID \ 在异步线程中预先取出的登录数据
+    private final Map<UUID, Entry> prefetched = new ConcurrentHashMap<>();
+    // 预先取出后一直没有进入游戏的数据到期移除
+    private final DelayedEvictionQueue<UUID, Entry> prefetchEvictions = new DelayedEvictionQueue<>();
+
+    // inGameUUID \ 该玩家退出游戏时完成的信号
+    private final Map<UUID, CompletableFuture<Void>> quitSignals = new ConcurrentHashMap<>();
 
     public PlayerHandler(MultiCore core) {
         this.core = core;
         this.cache = new ConcurrentHashMap<>();
-        this.loginCache = new ConcurrentHashMap<>();
+        this.loginCacheStore = new MemoryLoginCacheStore(EVICTION_DELAY);
     }
 
     @Override
     public HandleResult pushPlayerQuitGame(UUID inGameUUID, String username) {
+        CompletableFuture<Void> signal = quitSignals.remove(inGameUUID);
+        if (signal != null) signal.complete(null);
+        Entry entry = cache.get(inGameUUID);
+        if (entry != null) evictions.schedule(inGameUUID, entry, EVICTION_DELAY);
         return new HandleResult(HandleResult.Type.NONE, null);
     }
 
+    /**
+     * 获得一个在该游戏内 UUID 的玩家退出游戏时完成的信号，玩家不在线时立即完成
+     *
+     * @param inGameUUID 游戏内 UUID
+     */
+    public CompletableFuture<Void> awaitQuit(UUID inGameUUID) {
+        if (!core.getPlugin().getRunServer().getPlayerManager().hasOnline(inGameUUID)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> signal = quitSignals.computeIfAbsent(inGameUUID, k -> new CompletableFuture<>());
+        // 玩家可能在注册信号前退出
+        if (!core.getPlugin().getRunServer().getPlayerManager().hasOnline(inGameUUID)) {
+            quitSignals.remove(inGameUUID, signal);
+            signal.complete(null);
+        }
+        // 每个等待者使用自己的副本，超时不影响其他等待者
+        return signal.copy();
+    }
+
+    @Override
+    public void prefetchPlayerJoinGame(UUID inGameUUID) {
+        Entry entry = loginCacheStore.take(inGameUUID);
+        if (entry == null) return;
+        prefetched.put(inGameUUID, entry);
+        prefetchEvictions.schedule(inGameUUID, entry, EVICTION_DELAY);
+    }
+
     @Override
     public HandleResult pushPlayerJoinGame(UUID inGameUUID, String username) {
-        Entry remove = loginCache.remove(inGameUUID);
+        Entry remove = prefetched.remove(inGameUUID);
+        if (remove == null) remove = loginCacheStore.take(inGameUUID);
         if (remove == null) {
             if (core.getPluginConfig().isForceUseLogin()) {
                 return new HandleResult(HandleResult.Type.KICK, core.getLanguageHandler().getMessage("auth_handler_need_use_login"));
@@ -63,7 +113,7 @@ public class PlayerHandler implements HandlerAPI {
                         inGameUUID.toString(), username, l
                 ));
             }
-            cache.put(inGameUUID, remove);
+            putCache(inGameUUID, remove);
         }
 
         return new HandleResult(HandleResult.Type.NONE, null);
@@ -111,12 +161,25 @@ public class PlayerHandler implements HandlerAPI {
 
     @Override
     public UUID getInGameUUID(UUID onlineUUID, int serviceId) {
-        for (Map.Entry<UUID, Entry> entry : cache.entrySet()) {
-            if (entry.getValue().onlineProfile.getId().equals(onlineUUID)
-                    && entry.getValue().serviceConfig.getId() == serviceId)
-                return entry.getKey();
-        }
-        return null;
+        return onlineIndex.get(new OnlineKey(onlineUUID, serviceId));
+    }
+
+    // 在 cache 的锁内同时修改反向索引
+    private void putCache(UUID inGameUUID, Entry entry) {
+        cache.compute(inGameUUID, (k, old) -> {
+            if (old != null) onlineIndex.remove(OnlineKey.of(old), k);
+            onlineIndex.put(OnlineKey.of(entry), k);
+            return entry;
+        });
+    }
+
+    // 只在数据未被更改时移除
+    private void removeCache(UUID inGameUUID, Entry expected) {
+        cache.computeIfPresent(inGameUUID, (k, current) -> {
+            if (!current.equals(expected)) return current;
+            onlineIndex.remove(OnlineKey.of(current), k);
+            return null;
+        });
     }
 
     @Override
@@ -127,38 +190,46 @@ public class PlayerHandler implements HandlerAPI {
     }
 
     public void register() {
-        core.getPlugin().getRunServer().getScheduler().runTaskAsyncTimer(() -> {
-            // 存放在线的所有玩家
-            Set<UUID> onlinePlayerUUIDs = core.getPlugin().getRunServer().getPlayerManager().getOnlinePlayers().stream()
-                    .map(IPlayer::getUniqueId).collect(Collectors.toSet());
-
-            // 遍历当前缓存，获取失效的数据列表
-            Set<Map.Entry<UUID, Entry>> noExists = cache.entrySet().stream().filter(e -> !onlinePlayerUUIDs.contains(e.getKey())).collect(Collectors.toSet());
-
-            try {
-                Thread.sleep(1000 * 10);
-            } catch (InterruptedException e) {
-                LoggerProvider.getLogger().error("An exception occurred on the delayed cache clearing.", e);
-            }
-
-            // 移除失效的数据
-            for (Map.Entry<UUID, Entry> e : noExists) {
-                Entry entry = cache.get(e.getKey());
-
-                // 数据已被移除
-                if (entry == null) continue;
+        loginCacheStore = core.getPluginConfig().getLoginCacheConfig().createStore(core);
+        LoggerProvider.getLogger().debug(String.format("Using %s login cache store.", loginCacheStore.name()));
+        core.getPlugin().getRunServer().getScheduler().runTaskAsyncTimer(this::evictExpired, 1000, 1000);
+        core.getPlugin().getRunServer().getScheduler().runTaskAsyncTimer(this::sweepOffline, SWEEP_INTERVAL, SWEEP_INTERVAL);
+    }
 
-                // 在移除前数据被更改
-                if (!e.getValue().equals(entry)) continue;
+    // 加入事件被其他插件拒绝时不会有退出事件，定期为不在线的数据安排移除
+    private void sweepOffline() {
+        cache.forEach((inGameUUID, entry) -> {
+            if (!core.getPlugin().getRunServer().getPlayerManager().hasOnline(inGameUUID)) {
+                evictions.schedule(inGameUUID, entry, EVICTION_DELAY);
+            }
+        });
+    }
 
-                // 进行移除
-                cache.remove(e.getKey());
+    // 取出到期的数据进行移除，不阻塞调度线程
+    private void evictExpired() {
+        evictions.drain((inGameUUID, entry) -> {
+            // 等待期间重新进入游戏的玩家保留数据
+            if (!core.getPlugin().getRunServer().getPlayerManager().hasOnline(inGameUUID)) {
+                removeCache(inGameUUID, entry);
             }
+        });
+        prefetchEvictions.drain(prefetched::remove);
+        loginCacheStore.evictExpired();
+    }
 
-        }, 0, 1000 * 60);
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class OnlineKey {
+        private final UUID onlineUUID;
+        private final int serviceId;
+
+        private static OnlineKey of(Entry entry) {
+            return new OnlineKey(entry.onlineProfile.getId(), entry.serviceConfig.getId());
+        }
     }
 
     @AllArgsConstructor
+    @Getter
     public static class Entry {
         private final GameProfile onlineProfile;
         private final BaseServiceConfig serviceConfig;
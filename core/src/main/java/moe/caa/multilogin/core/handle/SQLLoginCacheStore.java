@@ -0,0 +1,83 @@
+package moe.caa.multilogin.core.handle;
+
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
+import moe.caa.multilogin.core.database.table.LoginCacheTableV1;
+import moe.caa.multilogin.core.main.MultiCore;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * 保存在共享数据库中的登录缓存
+ * 多个代理和后端共用同一个数据库时，一个节点写入的登录缓存可以被其他节点取出
+ */
+public class SQLLoginCacheStore implements LoginCacheStore {
+    private static final int CLEANUP_BATCH_SIZE = 500;
+    private final MultiCore core;
+    private final long expire;
+
+    public SQLLoginCacheStore(MultiCore core, long expire) {
+        this.core = core;
+        this.expire = expire;
+    }
+
+    /**
+     * 定期分批清理过期的登录缓存
+     */
+    public void register() {
+        core.getPlugin().getRunServer().getScheduler().runTaskAsyncTimer(this::cleanup, expire, expire);
+    }
+
+    private void cleanup() {
+        try {
+            int count = getTable().deleteExpired(System.currentTimeMillis(), CLEANUP_BATCH_SIZE);
+            if (count != 0) {
+                LoggerProvider.getLogger().debug(String.format("Removed %d expired login cache entries.", count));
+            }
+        } catch (SQLException e) {
+            LoggerProvider.getLogger().error("An exception occurred while cleaning up the login cache.", e);
+        }
+    }
+
+    @Override
+    public void put(UUID inGameUUID, PlayerHandler.Entry entry) {
+        try {
+            getTable().put(inGameUUID, core.getGson().toJson(entry.getOnlineProfile()), entry.getServiceConfig().getId(),
+                    entry.getSignTimeMillis(), entry.getSignTimeMillis() + expire);
+        } catch (SQLException e) {
+            LoggerProvider.getLogger().error(String.format("An exception occurred while saving the login cache of %s.", inGameUUID), e);
+        }
+    }
+
+    @Override
+    public PlayerHandler.Entry take(UUID inGameUUID) {
+        There<String, Integer, Long> data;
+        try {
+            data = getTable().take(inGameUUID, System.currentTimeMillis());
+        } catch (SQLException e) {
+            LoggerProvider.getLogger().error(String.format("An exception occurred while reading the login cache of %s.", inGameUUID), e);
+            return null;
+        }
+        if (data == null) return null;
+        BaseServiceConfig serviceConfig = core.getPluginConfig().getServiceIdMap().get(data.getValue2());
+        if (serviceConfig == null) {
+            LoggerProvider.getLogger().warn(String.format(
+                    "The login cache of %s refers to authentication service %d which is not configured on this server.",
+                    inGameUUID, data.getValue2()));
+            return null;
+        }
+        return new PlayerHandler.Entry(core.getGson().fromJson(data.getValue1(), GameProfile.class), serviceConfig, data.getValue3());
+    }
+
+    @Override
+    public String name() {
+        return "sql";
+    }
+
+    private LoginCacheTableV1 getTable() {
+        return core.getSqlManager().getLoginCacheTable();
+    }
+}
@@ -18,6 +18,10 @@ import moe.caa.multilogin.core.database.SQLManager;
 import moe.caa.multilogin.core.handle.CacheWhitelistHandler;
 import moe.caa.multilogin.core.handle.PlayerHandler;
 import moe.caa.multilogin.core.language.LanguageHandler;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
+import moe.caa.multilogin.core.metrics.PrometheusExporter;
+import moe.caa.multilogin.core.ohc.HttpClientRegistry;
+import moe.caa.multilogin.flows.workflows.BaseFlows;
 import moe.caa.multilogin.core.semver.CheckUpdater;
 import moe.caa.multilogin.core.semver.SemVersion;
 import moe.caa.multilogin.core.skinrestorer.SkinRestorerCore;
@@ -51,6 +55,11 @@ public class MultiCore implements MultiCoreAPI {
     @Getter
     private final CacheWhitelistHandler cacheWhitelistHandler;
     @Getter
+    private final HttpClientRegistry httpClientRegistry;
+    @Getter
+    private final MetricsRegistry metricsRegistry;
+    private final PrometheusExporter prometheusExporter;
+    @Getter
     private final Gson gson;
     @Getter
     private SemVersion semVersion;
@@ -65,8 +74,11 @@ public class MultiCore implements MultiCoreAPI {
      */
     public MultiCore(IPlugin plugin) {
         this.plugin = plugin;
+        this.metricsRegistry = new MetricsRegistry();
+        this.prometheusExporter = new PrometheusExporter(metricsRegistry);
         this.buildManifest = new BuildManifest(this);
         this.languageHandler = new LanguageHandler(this);
+        this.httpClientRegistry = new HttpClientRegistry();
         this.pluginConfig = new PluginConfig(plugin.getDataFolder(), this);
         this.sqlManager = new SQLManager(this);
         this.authHandler = new AuthHandler(this);
@@ -74,10 +86,11 @@ public class MultiCore implements MultiCoreAPI {
         this.commandHandler = new CommandHandler(this);
         this.playerHandler = new PlayerHandler(this);
         this.cacheWhitelistHandler = new CacheWhitelistHandler();
+        PropertySerializer propertySerializer = new PropertySerializer();
         this.gson = new GsonBuilder()
                 .setPrettyPrinting()
-                .registerTypeAdapter(GameProfile.class, new GameProfileSerializer())
-                .registerTypeAdapter(Property.class, new PropertySerializer()).create();
+                .registerTypeAdapter(GameProfile.class, new GameProfileSerializer(propertySerializer))
+                .registerTypeAdapter(Property.class, propertySerializer).create();
     }
 
     private void setupFloodgate() {
@@ -116,6 +129,9 @@ public class MultiCore implements MultiCoreAPI {
         languageHandler.init();
         pluginConfig.reload();
         sqlManager.init();
+        skinRestorerHandler.getQueue().start();
+        metricsRegistry.registerComponents(this);
+        prometheusExporter.reload(pluginConfig.getMetricsConfig());
         commandHandler.init();
         playerHandler.register();
         new CheckUpdater(this).start();
@@ -146,6 +162,7 @@ public class MultiCore implements MultiCoreAPI {
     public void reload() throws IOException, URISyntaxException {
         pluginConfig.reload();
         languageHandler.reload();
+        prometheusExporter.reload(pluginConfig.getMetricsConfig());
     }
 
     /**
@@ -153,6 +170,10 @@ public class MultiCore implements MultiCoreAPI {
      */
     @Override
     public void close() {
+        prometheusExporter.close();
+        httpClientRegistry.close();
+        skinRestorerHandler.getQueue().close();
         sqlManager.close();
+        BaseFlows.close();
     }
 }
@@ -0,0 +1,191 @@
+package moe.caa.multilogin.core.metrics;
+
+import lombok.Getter;
+import moe.caa.multilogin.core.database.ProfileCache;
+import moe.caa.multilogin.core.database.pool.ISQLConnectionPool;
+import moe.caa.multilogin.core.main.MultiCore;
+import moe.caa.multilogin.core.ohc.HttpClientRegistry;
+import moe.caa.multilogin.flows.workflows.BaseFlows;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 统计中心
+ * 每个统计项只有一个标签，热路径上使用常量字符串作为标签值，查找时不分配对象
+ */
+public class MetricsRegistry {
+    private final Map<String, Family<LatencyHistogram>> histograms = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Family<LongAdder>> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Gauge> gauges = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    // 登录流程各环节的耗时
+    @Getter
+    private final Family<LatencyHistogram> authLatency = histogram("multilogin_auth_seconds", "Latency of the whole login authentication.", "result");
+    @Getter
+    private final Family<LatencyHistogram> yggdrasilLatency = histogram("multilogin_yggdrasil_seconds", "Latency of hasJoined requests per yggdrasil service.", "service");
+    @Getter
+    private final Family<LatencyHistogram> validateLatency = histogram("multilogin_validate_seconds", "Latency of each in game validation step.", "step");
+    @Getter
+    private final Family<LatencyHistogram> tableLatency = histogram("multilogin_table_seconds", "Latency of database table methods.", "method");
+    @Getter
+    private final Family<LatencyHistogram> skinRestorerLatency = histogram("multilogin_skin_restorer_seconds", "Latency of skin restoration.", "result");
+    @Getter
+    private final Family<LongAdder> skinRestoredCacheLookups = counter("multilogin_skin_restored_cache_lookups_total", "Skin restored cache lookups by result.", "result");
+    @Getter
+    private final Family<LongAdder> yggdrasilFailures = counter("multilogin_yggdrasil_failures_total", "Failed hasJoined requests per yggdrasil service.", "service");
+
+    /**
+     * 导出各组件已有的统计
+     */
+    public void registerComponents(MultiCore core) {
+        gauge("multilogin_profile_cache_hit_ratio", "Hit ratio of the profile read cache.", "cache", () -> {
+            Map<String, Double> map = new HashMap<>();
+            ProfileCache profileCache = core.getSqlManager().getProfileCache();
+            if (profileCache == null) return map;
+            map.put("userData", profileCache.getUserData().getHitRate());
+            map.put("onlineServiceIds", profileCache.getOnlineServiceIds().getHitRate());
+            map.put("inGameProfiles", profileCache.getInGameProfiles().getHitRate());
+            map.put("inGameUUIDs", profileCache.getInGameUUIDs().getHitRate());
+            map.put("skinRestored", profileCache.getSkinRestored().getHitRate());
+            return map;
+        });
+        gauge("multilogin_http_client", "Shared yggdrasil http client statistics.", "metric", () -> {
+            HttpClientRegistry registry = core.getHttpClientRegistry();
+            Map<String, Long> map = new HashMap<>();
+            map.put("pool_hits", registry.getConnectionMetrics().getPoolHits());
+            map.put("pool_misses", registry.getConnectionMetrics().getPoolMisses());
+            map.put("connect_failures", registry.getConnectionMetrics().getConnectFailures());
+            map.put("cancelled_calls", registry.getCancelledCalls());
+            map.put("connections", (long) registry.getConnectionCount());
+            map.put("idle_connections", (long) registry.getIdleConnectionCount());
+            return map;
+        });
+        gauge("multilogin_sql_pool", "Database connection pool usage.", "metric", () -> {
+            Map<String, Integer> map = new HashMap<>();
+            ISQLConnectionPool pool = core.getSqlManager().getPool();
+            if (pool == null) return map;
+            map.put("active", pool.getActiveConnections());
+            map.put("max", pool.getMaxConnections());
+            map.put("awaiting", pool.getThreadsAwaitingConnection());
+            return map;
+        });
+        gauge("multilogin_flows_running", "Running tasks per flows step.", "flow", () -> {
+            Map<String, Long> map = new HashMap<>();
+            BaseFlows.getMetrics().getEntries().forEach((name, entry) -> map.put(name, entry.getRunning()));
+            return map;
+        });
+        gauge("multilogin_flows_completed", "Completed tasks per flows step.", "flow", () -> {
+            Map<String, Long> map = new HashMap<>();
+            BaseFlows.getMetrics().getEntries().forEach((name, entry) -> map.put(name, entry.getCompleted()));
+            return map;
+        });
+    }
+
+    /**
+     * 获得或注册一个耗时直方图
+     */
+    public Family<LatencyHistogram> histogram(String name, String help, String labelName) {
+        return histograms.computeIfAbsent(name, k -> new Family<>(name, help, labelName, LatencyHistogram::new));
+    }
+
+    /**
+     * 获得或注册一个计数器
+     */
+    public Family<LongAdder> counter(String name, String help, String labelName) {
+        return counters.computeIfAbsent(name, k -> new Family<>(name, help, labelName, LongAdder::new));
+    }
+
+    /**
+     * 注册一个在读取时才取值的统计项，用于导出其他组件已有的统计
+     *
+     * @param supplier 标签值 \ 当前值
+     */
+    public void gauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> supplier) {
+        gauges.put(name, new Gauge(name, help, labelName, supplier));
+    }
+
+    public List<Family<LatencyHistogram>> getHistograms() {
+        synchronized (histograms) {
+            return new ArrayList<>(histograms.values());
+        }
+    }
+
+    public List<Family<LongAdder>> getCounters() {
+        synchronized (counters) {
+            return new ArrayList<>(counters.values());
+        }
+    }
+
+    public List<Gauge> getGauges() {
+        synchronized (gauges) {
+            return new ArrayList<>(gauges.values());
+        }
+    }
+
+    /**
+     * 一组同名、标签值不同的统计项
+     */
+    public static class Family<T> {
+        @Getter
+        private final String name;
+        @Getter
+        private final String help;
+        @Getter
+        private final String labelName;
+        private final Supplier<T> factory;
+        private final Map<String, T> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String labelName, Supplier<T> factory) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.factory = factory;
+        }
+
+        /**
+         * 获得指定标签值的统计项
+         */
+        public T get(String labelValue) {
+            T child = children.get(labelValue);
+            if (child != null) return child;
+            return children.computeIfAbsent(labelValue, k -> factory.get());
+        }
+
+        /**
+         * 按标签值排序的所有统计项
+         */
+        public SortedMap<String, T> getChildren() {
+            return new TreeMap<>(children);
+        }
+    }
+
+    /**
+     * 读取时才取值的统计项
+     */
+    public static class Gauge {
+        @Getter
+        private final String name;
+        @Getter
+        private final String help;
+        @Getter
+        private final String labelName;
+        private final Supplier<Map<String, ? extends Number>> supplier;
+
+        private Gauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> supplier) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.supplier = supplier;
+        }
+
+        /**
+         * 按标签值排序的当前值
+         */
+        public SortedMap<String, Number> getValues() {
+            return new TreeMap<>(supplier.get());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package moe.caa.multilogin.core.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.core.configuration.MetricsConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prometheus 文本格式的统计端点，只绑定到本地回环地址
+ */
+public class PrometheusExporter {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private final MetricsRegistry registry;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PrometheusExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 按配置启动或关闭端点，配置未改变时不做任何事
+     */
+    public synchronized void reload(MetricsConfig config) {
+        int port = config.isPrometheus() ? config.getPrometheusPort() : -1;
+        if (server != null && server.getAddress().getPort() == port) return;
+        close();
+        if (port == -1) return;
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            LoggerProvider.getLogger().error(String.format("Unable to start the prometheus metrics endpoint on port %d.", port), e);
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "MultiLogin Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        LoggerProvider.getLogger().info(String.format("Prometheus metrics endpoint listening on http://%s:%d/metrics.",
+                server.getAddress().getHostString(), port));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 生成 Prometheus 文本格式的统计内容
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (MetricsRegistry.Family<LatencyHistogram> family : registry.getHistograms()) {
+            writeHeader(sb, family.getName(), family.getHelp(), "summary");
+            for (Map.Entry<String, LatencyHistogram> entry : family.getChildren().entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                for (double quantile : QUANTILES) {
+                    sb.append(family.getName()).append('{').append(family.getLabelName()).append("=\"").append(escape(entry.getKey()))
+                            .append("\",quantile=\"").append(quantile).append("\"} ")
+                            .append(histogram.getQuantile(quantile) / NANOS_PER_SECOND).append('\n');
+                }
+                writeSample(sb, family.getName() + "_sum", family.getLabelName(), entry.getKey(), histogram.getSum() / NANOS_PER_SECOND);
+                writeSample(sb, family.getName() + "_count", family.getLabelName(), entry.getKey(), histogram.getCount());
+            }
+        }
+        for (MetricsRegistry.Family<LongAdder> family : registry.getCounters()) {
+            writeHeader(sb, family.getName(), family.getHelp(), "counter");
+            family.getChildren().forEach((label, value) -> writeSample(sb, family.getName(), family.getLabelName(), label, value.sum()));
+        }
+        for (MetricsRegistry.Gauge gauge : registry.getGauges()) {
+            writeHeader(sb, gauge.getName(), gauge.getHelp(), "gauge");
+            gauge.getValues().forEach((label, value) -> writeSample(sb, gauge.getName(), gauge.getLabelName(), label, value));
+        }
+        return sb.toString();
+    }
+
+    private static void writeHeader(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder sb, String name, String labelName, String labelValue, Number value) {
+        sb.append(name).append('{').append(labelName).append("=\"").append(escape(labelValue)).append("\"} ").append(value).append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public synchronized void close() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+}
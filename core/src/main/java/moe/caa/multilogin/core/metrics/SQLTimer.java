@@ -0,0 +1,53 @@
+package moe.caa.multilogin.core.metrics;
+
+import java.sql.SQLException;
+
+/**
+ * 数据表方法耗时统计
+ * 只在真正访问数据库的方法上使用，委托给其他已统计方法的重载不再重复统计
+ */
+public class SQLTimer {
+    private final MetricsRegistry.Family<LatencyHistogram> latency;
+
+    public SQLTimer(MetricsRegistry.Family<LatencyHistogram> latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * 执行并记入耗时
+     *
+     * @param method 方法标签，形如 UserDataTableV4.get，重载之间不可相同
+     */
+    public <T> T timed(String method, SQLCallable<T> callable) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return callable.call();
+        } finally {
+            latency.get(method).recordSince(start);
+        }
+    }
+
+    /**
+     * 执行无返回值的方法并记入耗时
+     *
+     * @param method 方法标签，形如 UserDataTableV4.get，重载之间不可相同
+     */
+    public void timedRun(String method, SQLRunnable runnable) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            latency.get(method).recordSince(start);
+        }
+    }
+
+    @FunctionalInterface
+    public interface SQLCallable<T> {
+        T call() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface SQLRunnable {
+        void run() throws SQLException;
+    }
+}
@@ -0,0 +1,27 @@
+package moe.caa.multilogin.core.metrics;
+
+import moe.caa.multilogin.flows.workflows.BaseFlows;
+import moe.caa.multilogin.flows.workflows.Signal;
+
+/**
+ * 记录耗时的工序
+ */
+public class TimedFlows<C> extends BaseFlows<C> {
+    private final BaseFlows<C> flows;
+    private final LatencyHistogram histogram;
+
+    public TimedFlows(BaseFlows<C> flows, MetricsRegistry.Family<LatencyHistogram> family) {
+        this.flows = flows;
+        this.histogram = family.get(flows.getClass().getSimpleName());
+    }
+
+    @Override
+    public Signal run(C context) {
+        long start = System.nanoTime();
+        try {
+            return flows.run(context);
+        } finally {
+            histogram.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package moe.caa.multilogin.core.ohc;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接池命中统计
+ * 每次请求获取连接记一次，新建连接记一次未命中，其余为复用命中
+ */
+public class ConnectionMetricsListener extends EventListener {
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder connected = new LongAdder();
+    private final LongAdder connectFailed = new LongAdder();
+
+    @Override
+    public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+        acquired.increment();
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol) {
+        connected.increment();
+    }
+
+    @Override
+    public void connectFailed(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol, @NotNull IOException ioe) {
+        connectFailed.increment();
+    }
+
+    /**
+     * 复用已有连接的次数
+     */
+    public long getPoolHits() {
+        return Math.max(0, acquired.sum() - connected.sum());
+    }
+
+    /**
+     * 新建连接（TCP + TLS 握手）的次数
+     */
+    public long getPoolMisses() {
+        return connected.sum();
+    }
+
+    /**
+     * 建立连接失败的次数
+     */
+    public long getConnectFailures() {
+        return connectFailed.sum();
+    }
+}
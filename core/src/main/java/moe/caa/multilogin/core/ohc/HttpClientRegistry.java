@@ -0,0 +1,185 @@
+package moe.caa.multilogin.core.ohc;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.core.configuration.ProxyConfig;
+import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
+import moe.caa.multilogin.core.configuration.service.yggdrasil.BaseYggdrasilServiceConfig;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 长期存活的 OkHttpClient 注册表
+ * 所有客户端共享同一个连接池和调度器，按验证服务的超时、重试和代理设置派生
+ */
+public class HttpClientRegistry {
+    private final ConnectionPool connectionPool;
+    private final OkHttpClient baseClient;
+    @Getter
+    private final ConnectionMetricsListener connectionMetrics;
+    private final LoggingInterceptor loggingInterceptor = new LoggingInterceptor();
+
+    // serviceId \ Entry
+    private final Map<Integer, Entry> yggdrasilClients = new ConcurrentHashMap<>();
+
+    private final LongAdder clientHits = new LongAdder();
+    private final LongAdder clientMisses = new LongAdder();
+    private final LongAdder cancelledCalls = new LongAdder();
+
+    public HttpClientRegistry() {
+        this.connectionPool = new ConnectionPool(32, 5, TimeUnit.MINUTES);
+        this.connectionMetrics = new ConnectionMetricsListener();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(256);
+        dispatcher.setMaxRequestsPerHost(64);
+        this.baseClient = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListener(connectionMetrics)
+                .build();
+    }
+
+    /**
+     * 获得验证服务所使用的客户端
+     *
+     * @param config 验证服务配置
+     * @return 共享连接池的客户端
+     */
+    public OkHttpClient getYggdrasilClient(BaseYggdrasilServiceConfig config) {
+        ClientKey key = ClientKey.of(config);
+        Entry entry = yggdrasilClients.get(config.getId());
+        if (entry != null && entry.key.equals(key)) {
+            clientHits.increment();
+            return entry.client;
+        }
+        return yggdrasilClients.compute(config.getId(), (id, old) -> {
+            if (old != null && old.key.equals(key)) {
+                clientHits.increment();
+                return old;
+            }
+            clientMisses.increment();
+            return new Entry(key, buildYggdrasilClient(config));
+        }).client;
+    }
+
+    private OkHttpClient buildYggdrasilClient(BaseYggdrasilServiceConfig config) {
+        LoggerProvider.getLogger().debug(String.format("Building http client for yggdrasil service %s(yid: %d).", config.getName(), config.getId()));
+        return baseClient.newBuilder()
+                .addInterceptor(new RetryInterceptor(config.getRetry(), config.getRetryDelay()))
+                .addInterceptor(loggingInterceptor)
+                .writeTimeout(Duration.ofMillis(config.getTimeout()))
+                .readTimeout(Duration.ofMillis(config.getTimeout()))
+                .connectTimeout(Duration.ofMillis(config.getTimeout()))
+                .proxy(config.getAuthProxy().getProxy())
+                .proxyAuthenticator(config.getAuthProxy().getProxyAuthenticator())
+                .build();
+    }
+
+    /**
+     * 配置重载后调用，丢弃已被删除或设置已改变的验证服务客户端
+     *
+     * @param serviceIdMap 新的验证服务表
+     */
+    public void refresh(Map<Integer, BaseServiceConfig> serviceIdMap) {
+        yggdrasilClients.entrySet().removeIf(e -> {
+            BaseServiceConfig config = serviceIdMap.get(e.getKey());
+            boolean stale = !(config instanceof BaseYggdrasilServiceConfig)
+                    || !ClientKey.of((BaseYggdrasilServiceConfig) config).equals(e.getValue().key);
+            if (stale) {
+                LoggerProvider.getLogger().debug(String.format("Http client for yggdrasil service %d is outdated and will be rebuilt.", e.getKey()));
+            }
+            return stale;
+        });
+    }
+
+    /**
+     * 取消一个尚未完成的请求，并记入被浪费的请求数
+     *
+     * @param call 请求
+     */
+    public void cancel(Call call) {
+        if (call.isCanceled()) return;
+        call.cancel();
+        cancelledCalls.increment();
+    }
+
+    /**
+     * 被取消的请求数
+     */
+    public long getCancelledCalls() {
+        return cancelledCalls.sum();
+    }
+
+    /**
+     * 客户端复用次数
+     */
+    public long getClientHits() {
+        return clientHits.sum();
+    }
+
+    /**
+     * 客户端新建次数
+     */
+    public long getClientMisses() {
+        return clientMisses.sum();
+    }
+
+    /**
+     * 连接池中的连接数
+     */
+    public int getConnectionCount() {
+        return connectionPool.connectionCount();
+    }
+
+    /**
+     * 连接池中的空闲连接数
+     */
+    public int getIdleConnectionCount() {
+        return connectionPool.idleConnectionCount();
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void close() {
+        yggdrasilClients.clear();
+        baseClient.dispatcher().cancelAll();
+        baseClient.dispatcher().executorService().shutdown();
+        connectionPool.evictAll();
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final ClientKey key;
+        private final OkHttpClient client;
+    }
+
+    /**
+     * 影响客户端构建的设置
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class ClientKey {
+        private final int timeout;
+        private final int retry;
+        private final long retryDelay;
+        private final ProxyConfig proxy;
+
+        private static ClientKey of(BaseYggdrasilServiceConfig config) {
+            return new ClientKey(config.getTimeout(), config.getRetry(), config.getRetryDelay(), config.getAuthProxy());
+        }
+    }
+}
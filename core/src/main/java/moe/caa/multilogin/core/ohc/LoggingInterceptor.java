@@ -1,9 +1,8 @@
 package moe.caa.multilogin.core.ohc;
 
 import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.api.logger.bridges.DebugLoggerBridge;
 import okhttp3.*;
-import okio.Buffer;
-import okio.BufferedSource;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -11,6 +10,7 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Http 日志打印拦截器
+ * 仅在调试模式下打印，并且只读取请求体和响应体的长度，不缓冲内容
  */
 public class LoggingInterceptor implements Interceptor {
 
@@ -18,13 +18,13 @@ public class LoggingInterceptor implements Interceptor {
     @Override
     public Response intercept(@NotNull Chain chain) throws IOException {
         Request request = chain.request();
+        if (!DebugLoggerBridge.isDebugMode()) return chain.proceed(request);
+
         LoggerProvider.getLogger().debug(String.format("--> %s %s", request.method(), request.url()));
 
         RequestBody requestBody = request.body();
         if (requestBody != null) {
-            Buffer bf = new Buffer();
-            requestBody.writeTo(bf);
-            long size = bf.size();
+            long size = requestBody.contentLength();
             if (size > 0) LoggerProvider.getLogger().debug(String.format("--> (%d bytes)", size));
         }
 
@@ -41,12 +41,9 @@ public class LoggingInterceptor implements Interceptor {
         LoggerProvider.getLogger().debug(String.format("<-- %s %s (%dms)", response.code(), response.request().url(), tookMs));
         ResponseBody body = response.body();
         if (body != null) {
-
-            BufferedSource source = body.source();
-            source.request(Long.MAX_VALUE);
-            Buffer buffer = source.getBuffer();
-            long size = buffer.size();
+            long size = body.contentLength();
             if (size > 0) LoggerProvider.getLogger().debug(String.format("<-- (%d bytes)", size));
+            else if (size < 0) LoggerProvider.getLogger().debug("<-- (unknown-length body)");
         }
 
         return response;
@@ -33,16 +33,27 @@ public class RetryInterceptor implements Interceptor {
                 return response;
             } catch (IOException e) {
                 LoggerProvider.getLogger().debug(tc + " retry failed.", e);
-                if (tc >= retry) throw e;
+                if (tc >= retry || chain.call().isCanceled()) throw e;
             }
 
-            try {
-                TimeUnit.MILLISECONDS.sleep(delay);
-            } catch (InterruptedException e) {
-                throw new InterruptedRetryException(e);
-            }
+            sleep(chain);
+            if (chain.call().isCanceled()) throw new IOException("Canceled");
             tc++;
             LoggerProvider.getLogger().debug("--> " + tc + " retry.");
         }
     }
+
+    // 分段休眠，请求被取消后尽快结束等待
+    private void sleep(Chain chain) throws InterruptedRetryException {
+        long deadline = System.currentTimeMillis() + delay;
+        long remaining = delay;
+        try {
+            while (remaining > 0 && !chain.call().isCanceled()) {
+                TimeUnit.MILLISECONDS.sleep(Math.min(remaining, 50));
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedRetryException(e);
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package moe.caa.multilogin.core.skinrestorer;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * PNG 文件头
+ * 只读取文件签名和 IHDR 块，不解码图像数据
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString
+public class PngHeader {
+    private static final byte[] SIGNATURE = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    // 签名 + 块长度 + 块类型 + IHDR 数据
+    public static final int LENGTH = 8 + 4 + 4 + 13;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    @ToString.Exclude
+    private final byte[] raw;
+
+    /**
+     * 从流中读取文件头，流的位置停在 IHDR 数据之后
+     */
+    public static PngHeader read(InputStream in) throws IOException {
+        byte[] raw = in.readNBytes(LENGTH);
+        if (raw.length < LENGTH) throw new SkinRestorerException("Skin is not a PNG image.");
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        byte[] signature = new byte[SIGNATURE.length];
+        buffer.get(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) throw new SkinRestorerException("Skin is not a PNG image.");
+        int chunkLength = buffer.getInt();
+        byte[] chunkType = new byte[4];
+        buffer.get(chunkType);
+        if (chunkLength != 13 || !"IHDR".equals(new String(chunkType, StandardCharsets.US_ASCII))) {
+            throw new SkinRestorerException("Skin PNG does not start with an IHDR chunk.");
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int bitDepth = buffer.get() & 0xFF;
+        int colorType = buffer.get() & 0xFF;
+        if (!isValidDepth(colorType, bitDepth)) {
+            throw new SkinRestorerException(String.format("Invalid PNG color type %d with bit depth %d.", colorType, bitDepth));
+        }
+        return new PngHeader(width, height, bitDepth, colorType, raw);
+    }
+
+    // PNG 规范中颜色类型允许的位深
+    private static boolean isValidDepth(int colorType, int bitDepth) {
+        return switch (colorType) {
+            case 0 -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case 3 -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            case 2, 4, 6 -> bitDepth == 8 || bitDepth == 16;
+            default -> false;
+        };
+    }
+}
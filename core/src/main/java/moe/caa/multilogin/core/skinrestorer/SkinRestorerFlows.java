@@ -11,10 +11,9 @@ import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
 import moe.caa.multilogin.core.main.MultiCore;
 import okhttp3.*;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -45,7 +44,7 @@ public class SkinRestorerFlows implements Callable<SkinRestorerResultImpl> {
     public SkinRestorerResultImpl call() throws Exception {
         byte[] bytes;
         try {
-            bytes = requireValidSkin(skinUrl, skinModel);
+            bytes = requireValidSkin(skinUrl, skinModel, config.getSkinRestorer().getMethod() == SkinRestorerConfig.Method.UPLOAD);
         } catch (Exception e) {
             return SkinRestorerResultImpl.ofBadSkin(e);
         }
@@ -53,7 +52,7 @@ public class SkinRestorerFlows implements Callable<SkinRestorerResultImpl> {
 
         if (config.getSkinRestorer().getMethod() == SkinRestorerConfig.Method.UPLOAD) {
             request = new Request.Builder()
-                    .url("https://api.mineskin.org/generate/upload")
+                    .url(core.getPluginConfig().getMineskinApi() + "/generate/upload")
                     .header("User-Agent", "MultiLogin/v2.0")
                     .post(new MultipartBody.Builder()
                             .setType(MultipartBody.FORM)
@@ -73,7 +72,7 @@ public class SkinRestorerFlows implements Callable<SkinRestorerResultImpl> {
             jo.addProperty("url", skinUrl);
 
             request = new Request.Builder()
-                    .url("https://api.mineskin.org/generate/url")
+                    .url(core.getPluginConfig().getMineskinApi() + "/generate/url")
                     .header("User-Agent", core.getHttpRequestHeaderUserAgent())
                     .header("Content-Type", "application/json")
                     .post(RequestBody.create(core.getGson().toJson(jo), MediaType.parse("application/json; charset=utf-8")))
@@ -100,28 +99,30 @@ public class SkinRestorerFlows implements Callable<SkinRestorerResultImpl> {
         return SkinRestorerResultImpl.ofRestorerSucceed(profile);
     }
 
-    private byte[] requireValidSkin(String skinUrl, String model) throws IOException {
+    // 只读取 PNG 文件头校验尺寸，不解码图像，URL 方式不需要下载整个文件
+    private byte[] requireValidSkin(String skinUrl, String model, boolean download) throws IOException {
         Request request = new Request.Builder()
                 .get()
                 .header("User-Agent", "MultiLogin/v2.0")
                 .url(skinUrl)
                 .build();
-        // 下载皮肤原件
-        byte[] bytes = Objects.requireNonNull(okHttpClient.newCall(request).execute().body()).bytes();
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes)) {
-            BufferedImage image = ImageIO.read(bais);
-
-            boolean x64 = false; // 1.8 新版皮肤
-            if (image.getWidth() != 64) {
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            InputStream in = Objects.requireNonNull(response.body()).byteStream();
+            PngHeader header = PngHeader.read(in);
+            if (header.getWidth() != 64) {
                 throw new SkinRestorerException("Skin width is not 64.");
             }
-            if (!(image.getHeight() == 32 || image.getHeight() == 64)) {
+            if (!(header.getHeight() == 32 || header.getHeight() == 64)) {
                 throw new SkinRestorerException("Skin height is not 64 or 32.");
             }
-            x64 = image.getHeight() == 64;
-            // TODO: 2022/7/13 皮肤半透明判断
+            // 半透明像素需要解码图像才能判断，交由上传后的皮肤站处理
+            if (!download) return null;
 
-            return bytes;
+            // 下载皮肤原件用于上传，文件头已经读取过
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(header.getRaw());
+            in.transferTo(out);
+            return out.toByteArray();
         }
     }
 }
@@ -0,0 +1,36 @@
+package moe.caa.multilogin.core.skinrestorer;
+
+import lombok.Getter;
+import lombok.Setter;
+import moe.caa.multilogin.core.database.ProfileCache;
+
+import java.util.UUID;
+
+/**
+ * 皮肤修复队列中的一个任务
+ */
+@Getter
+public class SkinRestorerJob {
+    private final byte[] urlSha256;
+    private final String model;
+    private final String url;
+    private final int serviceId;
+    private final UUID onlineUUID;
+    private final long createTime;
+    private final ProfileCache.SkinKey key;
+    @Setter
+    private int attempts;
+    // 重试前不会被取出
+    @Setter
+    private long notBefore;
+
+    public SkinRestorerJob(byte[] urlSha256, String model, String url, int serviceId, UUID onlineUUID, long createTime) {
+        this.urlSha256 = urlSha256;
+        this.model = model;
+        this.url = url;
+        this.serviceId = serviceId;
+        this.onlineUUID = onlineUUID;
+        this.createTime = createTime;
+        this.key = new ProfileCache.SkinKey(urlSha256, model);
+    }
+}
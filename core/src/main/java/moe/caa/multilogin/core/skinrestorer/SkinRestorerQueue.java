@@ -0,0 +1,225 @@
+package moe.caa.multilogin.core.skinrestorer;
+
+import lombok.Getter;
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.api.logger.LoggerProvider;
+import moe.caa.multilogin.core.configuration.SkinRestorerConfig;
+import moe.caa.multilogin.core.configuration.SkinRestorerQueueConfig;
+import moe.caa.multilogin.core.configuration.service.BaseServiceConfig;
+import moe.caa.multilogin.core.database.ProfileCache;
+import moe.caa.multilogin.core.main.MultiCore;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 皮肤修复队列
+ * ASYNC 模式的修复任务在这里排队，按令牌桶的速率发起修复，在线玩家的任务优先
+ * 等待中的任务保存在数据库中，数据库读写在队列自己的线程中按顺序进行
+ */
+public class SkinRestorerQueue {
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    // 检查队列的间隔
+    private static final long TICK_INTERVAL = 500;
+    // 关闭时等待数据库写入完成的最长时间
+    private static final long CLOSE_TIMEOUT = 5000;
+    private final MultiCore core;
+    private final SkinRestorerCore skinRestorerCore;
+    // 皮肤 URL sha256 + 模型 \ 等待中的任务，按加入的顺序排列
+    private final Map<ProfileCache.SkinKey, SkinRestorerJob> pending = new LinkedHashMap<>();
+    private final Set<ProfileCache.SkinKey> running = new HashSet<>();
+    @Getter
+    private final LongAdder completed = new LongAdder();
+    @Getter
+    private final LongAdder failed = new LongAdder();
+    @Getter
+    private final LongAdder rejected = new LongAdder();
+    @Getter
+    private TokenBucket tokenBucket;
+    private ScheduledExecutorService executor;
+
+    public SkinRestorerQueue(MultiCore core, SkinRestorerCore skinRestorerCore) {
+        this.core = core;
+        this.skinRestorerCore = skinRestorerCore;
+    }
+
+    /**
+     * 读取保存的任务并开始处理
+     */
+    public void start() {
+        SkinRestorerQueueConfig config = core.getPluginConfig().getSkinRestorerQueueConfig();
+        tokenBucket = new TokenBucket(config.getBurst(), config.getPermitsPerMinute());
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MultiLogin Skin Restorer Queue #" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<SkinRestorerJob> jobs = core.getSqlManager().getSkinRestorerQueueTable().getAll();
+            synchronized (this) {
+                for (SkinRestorerJob job : jobs) {
+                    pending.put(job.getKey(), job);
+                }
+            }
+            if (!jobs.isEmpty()) {
+                LoggerProvider.getLogger().info(String.format("Loaded %d pending skin restoration jobs.", jobs.size()));
+            }
+        } catch (Exception e) {
+            LoggerProvider.getLogger().error("An exception occurred while loading pending skin restoration jobs.", e);
+        }
+        executor.scheduleWithFixedDelay(this::tick, TICK_INTERVAL, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 加入一个修复任务
+     *
+     * @return 同一皮肤已在队列中或队列已满时返回 false
+     */
+    public boolean offer(SkinRestorerJob job) {
+        synchronized (this) {
+            if (pending.containsKey(job.getKey()) || running.contains(job.getKey())) return false;
+            if (pending.size() + running.size() >= core.getPluginConfig().getSkinRestorerQueueConfig().getCapacity()) {
+                rejected.increment();
+                LoggerProvider.getLogger().debug(String.format("Skin restorer queue is full, discarded the restoration of %s.", job.getUrl()));
+                return false;
+            }
+            pending.put(job.getKey(), job);
+        }
+        persist(() -> core.getSqlManager().getSkinRestorerQueueTable().put(job));
+        return true;
+    }
+
+    // 令牌足够时取出任务交给异步线程执行
+    private void tick() {
+        try {
+            SkinRestorerQueueConfig config = core.getPluginConfig().getSkinRestorerQueueConfig();
+            tokenBucket.reconfigure(config.getBurst(), config.getPermitsPerMinute());
+            SkinRestorerJob job;
+            while ((job = poll()) != null) {
+                SkinRestorerJob finalJob = job;
+                core.getPlugin().getRunServer().getScheduler().runTaskAsync(() -> run(finalJob));
+            }
+        } catch (Throwable e) {
+            LoggerProvider.getLogger().error("An exception occurred while dispatching skin restoration jobs.", e);
+        }
+    }
+
+    // 优先取出玩家在线的任务，其次是最早加入的任务
+    private synchronized SkinRestorerJob poll() {
+        long now = System.currentTimeMillis();
+        SkinRestorerJob first = null;
+        SkinRestorerJob online = null;
+        for (SkinRestorerJob job : pending.values()) {
+            if (job.getNotBefore() > now) continue;
+            if (first == null) first = job;
+            if (core.getPlayerHandler().getInGameUUID(job.getOnlineUUID(), job.getServiceId()) != null) {
+                online = job;
+                break;
+            }
+        }
+        SkinRestorerJob job = online != null ? online : first;
+        if (job == null || !tokenBucket.tryAcquire()) return null;
+        pending.remove(job.getKey());
+        running.add(job.getKey());
+        return job;
+    }
+
+    private void run(SkinRestorerJob job) {
+        boolean retry = false;
+        try {
+            BaseServiceConfig serviceConfig = core.getPluginConfig().getServiceIdMap().get(job.getServiceId());
+            // 验证服务已被删除或关闭了皮肤修复
+            if (serviceConfig == null || serviceConfig.getSkinRestorer().getRestorer() == SkinRestorerConfig.RestorerType.OFF) {
+                return;
+            }
+            // 其他代理可能已经修复过这个皮肤
+            if (core.getSqlManager().getSkinRestoredCacheTable().getCacheRestored(job.getUrlSha256(), job.getModel()) != null) {
+                completed.increment();
+                return;
+            }
+            job.setAttempts(job.getAttempts() + 1);
+            GameProfile profile = new GameProfile(job.getOnlineUUID(), null, new HashMap<>());
+            SkinRestorerResultImpl result = skinRestorerCore.restoreShared(job.getKey(),
+                    new SkinRestorerFlows(core, serviceConfig, SkinRestorerCore.buildHttpClient(serviceConfig), job.getUrl(), job.getModel(), profile),
+                    profile);
+            SkinRestorerResultImpl.handleSkinRestoreResult(result);
+            if (result.getReason() == SkinRestorerResultImpl.Reason.RESTORER_SUCCEED) {
+                completed.increment();
+            } else {
+                failed.increment();
+                retry = result.getReason() == SkinRestorerResultImpl.Reason.RESTORER_FAILED;
+            }
+        } catch (Throwable e) {
+            SkinRestorerResultImpl.handleSkinRestoreResult(e);
+            failed.increment();
+            retry = true;
+        } finally {
+            finish(job, retry);
+        }
+    }
+
+    // 可以重试的任务延迟后放回队列末尾，其他任务从数据库中删除
+    private void finish(SkinRestorerJob job, boolean retry) {
+        SkinRestorerQueueConfig config = core.getPluginConfig().getSkinRestorerQueueConfig();
+        boolean requeue = retry && job.getAttempts() < config.getMaxAttempts();
+        synchronized (this) {
+            running.remove(job.getKey());
+            if (requeue) {
+                job.setNotBefore(System.currentTimeMillis() + (config.getRetryDelay() << (job.getAttempts() - 1)));
+                pending.put(job.getKey(), job);
+            }
+        }
+        if (requeue) {
+            // 保存尝试次数和重试时间，重启后继续之前的退避
+            persist(() -> core.getSqlManager().getSkinRestorerQueueTable().put(job));
+        } else {
+            persist(() -> core.getSqlManager().getSkinRestorerQueueTable().remove(job.getUrlSha256(), job.getModel()));
+        }
+    }
+
+    private void persist(SqlAction action) {
+        try {
+            executor.execute(() -> {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    LoggerProvider.getLogger().warn("An exception occurred while saving skin restoration jobs.", e);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // 已经关闭，数据库中的任务在下次启动时继续
+        }
+    }
+
+    /**
+     * 等待中的任务，按加入的顺序排列
+     */
+    public synchronized List<SkinRestorerJob> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized int getRunning() {
+        return running.size();
+    }
+
+    public void close() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LoggerProvider.getLogger().warn("Timed out while saving skin restoration jobs.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface SqlAction {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,52 @@
+package moe.caa.multilogin.core.skinrestorer;
+
+/**
+ * 令牌桶限流器
+ */
+public class TokenBucket {
+    private long capacity;
+    // 每纳秒补充的令牌数
+    private double refillPerNanos;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, long permitsPerMinute) {
+        this.lastRefill = System.nanoTime();
+        this.tokens = capacity;
+        reconfigure(capacity, permitsPerMinute);
+    }
+
+    /**
+     * 修改容量和速率，保留已有的令牌
+     */
+    public synchronized void reconfigure(long capacity, long permitsPerMinute) {
+        refill();
+        this.capacity = capacity;
+        this.refillPerNanos = permitsPerMinute / 60_000_000_000.0;
+        this.tokens = Math.min(tokens, capacity);
+    }
+
+    /**
+     * 尝试取得一个令牌
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+
+    /**
+     * 当前可用的令牌数量
+     */
+    public synchronized int getAvailable() {
+        refill();
+        return (int) tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNanos);
+        lastRefill = now;
+    }
+}
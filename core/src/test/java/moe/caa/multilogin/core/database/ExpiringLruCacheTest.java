@@ -0,0 +1,75 @@
+package moe.caa.multilogin.core.database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缓存失效与读穿写入的版本判断
+ */
+public class ExpiringLruCacheTest {
+
+    @Test
+    public void invalidatingOtherKeyKeepsPut() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(16, 60000);
+        long stamp = cache.stamp();
+        cache.invalidate("b");
+        cache.put("a", "value", stamp);
+        assertEquals("value", cache.get("a"));
+    }
+
+    @Test
+    public void invalidatingSameKeyDropsPut() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(16, 60000);
+        long stamp = cache.stamp();
+        cache.invalidate("a");
+        cache.put("a", "stale", stamp);
+        assertNull(cache.get("a"));
+
+        cache.put("a", "fresh", cache.stamp());
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    public void invalidatingIndexRemovesEntriesAndDropsPut() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(16, 60000, v -> v);
+        cache.put("a", "x", cache.stamp());
+        cache.put("b", "x", cache.stamp());
+        cache.put("c", "y", cache.stamp());
+        long stamp = cache.stamp();
+        cache.invalidateIndexed("x");
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("y", cache.get("c"));
+
+        cache.put("d", "x", stamp);
+        assertNull(cache.get("d"));
+        cache.put("e", "y", stamp);
+        assertEquals("y", cache.get("e"));
+    }
+
+    @Test
+    public void replacedValueIsReindexed() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(16, 60000, v -> v);
+        cache.put("a", "x", cache.stamp());
+        cache.put("a", "y", cache.stamp());
+        cache.invalidateIndexed("x");
+        assertEquals("y", cache.get("a"));
+        cache.invalidateIndexed("y");
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void evictedInvalidationDropsOlderPuts() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, 60000);
+        long stamp = cache.stamp();
+        cache.invalidate("a");
+        cache.invalidate("b");
+        // 失效记录超出上限，最旧的 a 被淘汰，早于它的写入一律放弃
+        cache.invalidate("c");
+        cache.put("a", "stale", stamp);
+        cache.put("d", "stale", stamp);
+        assertNull(cache.get("a"));
+        assertNull(cache.get("d"));
+    }
+}
@@ -0,0 +1,91 @@
+package moe.caa.multilogin.core.database.table;
+
+import moe.caa.multilogin.api.util.IOUtil;
+import moe.caa.multilogin.api.util.There;
+import moe.caa.multilogin.core.database.pool.H2ConnectionPool;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
+import moe.caa.multilogin.core.metrics.SQLTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 登录缓存表在内嵌 H2 数据库上的读写
+ */
+public class LoginCacheTableV1Test {
+    private File dataFolder;
+    private H2ConnectionPool pool;
+    private LoginCacheTableV1 table;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dataFolder = Files.createTempDirectory("multilogin-test").toFile();
+        pool = new H2ConnectionPool(dataFolder, "", "");
+        table = new LoginCacheTableV1(() -> pool, new SQLTimer(new MetricsRegistry().getTableLatency()), "multilogin_login_cache_v1");
+        try (Connection connection = pool.getConnection()) {
+            table.init(connection);
+        }
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        pool.close();
+        IOUtil.removeAllFiles(dataFolder);
+    }
+
+    @Test
+    public void takeReturnsPutEntryOnce() throws Exception {
+        UUID inGameUUID = UUID.randomUUID();
+        table.put(inGameUUID, "{\"name\":\"Player\"}", 1, 1000, 2000);
+
+        There<String, Integer, Long> taken = table.take(inGameUUID, 1500);
+        assertNotNull(taken);
+        assertEquals("{\"name\":\"Player\"}", taken.getValue1());
+        assertEquals(1, taken.getValue2());
+        assertEquals(1000L, taken.getValue3());
+        assertNull(table.take(inGameUUID, 1500));
+    }
+
+    @Test
+    public void putReplacesPreviousEntry() throws Exception {
+        UUID inGameUUID = UUID.randomUUID();
+        table.put(inGameUUID, "old", 1, 1000, 2000);
+        table.put(inGameUUID, "new", 2, 1100, 2100);
+
+        There<String, Integer, Long> taken = table.take(inGameUUID, 1500);
+        assertNotNull(taken);
+        assertEquals("new", taken.getValue1());
+        assertEquals(2, taken.getValue2());
+    }
+
+    @Test
+    public void expiredEntryIsNotTaken() throws Exception {
+        UUID inGameUUID = UUID.randomUUID();
+        table.put(inGameUUID, "profile", 1, 1000, 2000);
+
+        assertNull(table.take(inGameUUID, 2001));
+    }
+
+    @Test
+    public void deleteExpiredRemovesOnlyExpiredEntries() throws Exception {
+        UUID expired1 = UUID.randomUUID();
+        UUID expired2 = UUID.randomUUID();
+        UUID alive = UUID.randomUUID();
+        table.put(expired1, "expired1", 1, 1000, 2000);
+        table.put(expired2, "expired2", 1, 1000, 2000);
+        table.put(alive, "alive", 1, 1000, 5000);
+
+        // 每批只删除一条，需要多次才能删除全部过期数据
+        assertEquals(2, table.deleteExpired(3000, 1));
+        assertNull(table.take(expired1, 0));
+        assertNull(table.take(expired2, 0));
+        assertNotNull(table.take(alive, 3000));
+    }
+}
@@ -2,10 +2,11 @@ package moe.caa.multilogin.flows.workflows;
 
 import lombok.AccessLevel;
 import lombok.Getter;
+import moe.caa.multilogin.flows.ProcessingFailedException;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 表示一个工作流
@@ -13,14 +14,69 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @param <CONTEXT> 加工上下文
  */
 public abstract class BaseFlows<CONTEXT> {
-    private static final AtomicInteger asyncThreadId = new AtomicInteger(0);
+    @Getter
+    private static final FlowsMetrics metrics = new FlowsMetrics();
+
+    @Getter
+    private static volatile FlowsExecutorProvider executorProvider = FlowsExecutors.cached();
 
     @Getter(value = AccessLevel.PROTECTED)
-    private static final ExecutorService executorService = Executors.newCachedThreadPool(r -> {
-        final Thread thread = new Thread(r, "MultiLogin Flows #" + asyncThreadId.incrementAndGet());
-        thread.setDaemon(true);
-        return thread;
-    });
+    private static volatile ExecutorService executorService = executorProvider.createExecutorService(metrics);
+
+    /**
+     * 更换工作流线程池，旧的线程池会在执行完已提交的任务后关闭
+     *
+     * @param provider 线程池提供者
+     */
+    public static synchronized void setExecutorProvider(FlowsExecutorProvider provider) {
+        ExecutorService old = executorService;
+        executorService = provider.createExecutorService(metrics);
+        executorProvider = provider;
+        old.shutdown();
+    }
+
+    /**
+     * 提交一道工序到线程池，执行时线程名称会标明工序类型
+     *
+     * @param step 工序
+     * @param task 任务
+     */
+    protected static Future<?> submit(BaseFlows<?> step, Runnable task) {
+        String flowName = step.getClass().getSimpleName().isEmpty() ? step.getClass().getName() : step.getClass().getSimpleName();
+        FlowsMetrics.Entry entry = metrics.getEntry(flowName);
+        entry.submit();
+        Runnable wrapped = () -> {
+            Thread thread = Thread.currentThread();
+            String name = thread.getName();
+            thread.setName(name + " - " + flowName);
+            entry.start();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                entry.complete(System.nanoTime() - start);
+                thread.setName(name);
+            }
+        };
+        ExecutorService executor = executorService;
+        try {
+            return executor.submit(wrapped);
+        } catch (RejectedExecutionException e) {
+            if (!executor.isShutdown()) {
+                throw new ProcessingFailedException("The flows executor is saturated.", e);
+            }
+            // 与更换线程池同时提交时旧线程池已关闭，改交给新的线程池
+            ExecutorService current = executorService;
+            if (current == executor) {
+                throw new ProcessingFailedException("The flows executor has been shut down.", e);
+            }
+            try {
+                return current.submit(wrapped);
+            } catch (RejectedExecutionException ex) {
+                throw new ProcessingFailedException("The flows executor is saturated.", ex);
+            }
+        }
+    }
 
     public static synchronized void close() {
         if (executorService.isShutdown()) return;
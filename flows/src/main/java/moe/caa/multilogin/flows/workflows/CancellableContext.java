@@ -0,0 +1,13 @@
+package moe.caa.multilogin.flows.workflows;
+
+/**
+ * 可取消的加工上下文
+ * 委托流在有工序完成加工后会取消该上下文的令牌，并中断其余仍在加工的工序
+ */
+public interface CancellableContext {
+
+    /**
+     * 获得该上下文的取消令牌
+     */
+    CancellationToken getCancellationToken();
+}
@@ -0,0 +1,54 @@
+package moe.caa.multilogin.flows.workflows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 协作式取消令牌
+ * 工序可以注册取消回调，令牌被取消时回调会被执行，之后注册的回调会被立即执行
+ */
+public class CancellationToken {
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * 取消令牌
+     *
+     * @return 是否由本次调用完成取消
+     */
+    public boolean cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (cancelled) return false;
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            callback.run();
+        }
+        return true;
+    }
+
+    /**
+     * 注册一个取消回调
+     *
+     * @param callback 回调
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * 是否已被取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -29,12 +30,14 @@ public class EntrustFlows<C> extends BaseFlows<C> {
         CountDownLatch latch = new CountDownLatch(1);
         // 存放当前有多少工序加工
         List<BaseFlows<C>> currentTasks = Collections.synchronizedList(new ArrayList<>());
+        // 存放已提交的工序，用于取消
+        List<Future<?>> futures = new ArrayList<>();
         // 避免阻死
         boolean flag = false;
         for (BaseFlows<C> step : steps) {
             flag = true;
             currentTasks.add(step);
-            BaseFlows.getExecutorService().execute(() -> {
+            futures.add(BaseFlows.submit(step, () -> {
                 try {
                     Signal signal = step.run(context);
                     // 这个工序能完成这项任务，释放信号
@@ -47,7 +50,7 @@ public class EntrustFlows<C> extends BaseFlows<C> {
                     // 没人能完成这个工序，释放信号
                     if (currentTasks.isEmpty()) latch.countDown();
                 }
-            });
+            }));
         }
 
         if (flag) try {
@@ -56,6 +59,14 @@ public class EntrustFlows<C> extends BaseFlows<C> {
             throw new ProcessingFailedException(e);
         }
 
+        // 已有工序完成，取消其余仍在加工的工序
+        if (passed.get() && context instanceof CancellableContext) {
+            ((CancellableContext) context).getCancellationToken().cancel();
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
         return passed.get() ? Signal.PASSED : Signal.TERMINATED;
     }
 }
@@ -0,0 +1,23 @@
+package moe.caa.multilogin.flows.workflows;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 工作流线程池提供者
+ * 并行流和委托流的工序会提交到由此创建的线程池中执行
+ */
+public interface FlowsExecutorProvider {
+
+    /**
+     * 创建一个新的线程池
+     *
+     * @param metrics 线程池统计，线程池拒绝任务时应记入统计
+     * @return 线程池
+     */
+    ExecutorService createExecutorService(FlowsMetrics metrics);
+
+    /**
+     * 提供者名称，用于日志和统计
+     */
+    String getName();
+}
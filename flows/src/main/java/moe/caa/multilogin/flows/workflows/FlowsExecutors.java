@@ -0,0 +1,110 @@
+package moe.caa.multilogin.flows.workflows;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内置的工作流线程池提供者
+ */
+public class FlowsExecutors {
+    private static final AtomicInteger asyncThreadId = new AtomicInteger(0);
+
+    private FlowsExecutors() {
+    }
+
+    private static Thread newThread(Runnable r) {
+        final Thread thread = new Thread(r, "MultiLogin Flows #" + asyncThreadId.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 无上限的线程池，没有空闲线程时总会创建新线程
+     */
+    public static FlowsExecutorProvider cached() {
+        return new FlowsExecutorProvider() {
+            @Override
+            public ExecutorService createExecutorService(FlowsMetrics metrics) {
+                return Executors.newCachedThreadPool(FlowsExecutors::newThread);
+            }
+
+            @Override
+            public String getName() {
+                return "cached";
+            }
+        };
+    }
+
+    /**
+     * 有上限的平台线程池
+     * 线程全部繁忙时任务进入队列，队列满后按拒绝策略处理
+     *
+     * @param maxThreads 最大线程数
+     * @param queueSize  队列长度
+     * @param callerRuns 队列满后是否由提交者线程执行，否则拒绝任务
+     */
+    public static FlowsExecutorProvider bounded(int maxThreads, int queueSize, boolean callerRuns) {
+        return new FlowsExecutorProvider() {
+            @Override
+            public ExecutorService createExecutorService(FlowsMetrics metrics) {
+                RejectedExecutionHandler policy = callerRuns ? new ThreadPoolExecutor.CallerRunsPolicy() : new ThreadPoolExecutor.AbortPolicy();
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(queueSize), FlowsExecutors::newThread, (r, e) -> {
+                    // CallerRunsPolicy 会直接丢弃已关闭线程池的任务，返回的 Future 永远不会完成
+                    if (e.isShutdown()) throw new RejectedExecutionException("The flows executor has been shut down.");
+                    metrics.recordRejected();
+                    policy.rejectedExecution(r, e);
+                });
+                executor.allowCoreThreadTimeOut(true);
+                return executor;
+            }
+
+            @Override
+            public String getName() {
+                return String.format("bounded(threads: %d, queue: %d, %s)", maxThreads, queueSize, callerRuns ? "caller-runs" : "abort");
+            }
+        };
+    }
+
+    /**
+     * 虚拟线程，每个任务一个虚拟线程，需要 Java 21 及以上
+     *
+     * @throws UnsupportedOperationException 当前运行环境不支持虚拟线程
+     */
+    public static FlowsExecutorProvider virtual() {
+        if (!isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+        return new FlowsExecutorProvider() {
+            @Override
+            public ExecutorService createExecutorService(FlowsMetrics metrics) {
+                try {
+                    Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                    builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "MultiLogin Flows (virtual) #", 1L);
+                    ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                    return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+                } catch (ReflectiveOperationException e) {
+                    throw new UnsupportedOperationException("Unable to create virtual thread executor.", e);
+                }
+            }
+
+            @Override
+            public String getName() {
+                return "virtual";
+            }
+        };
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
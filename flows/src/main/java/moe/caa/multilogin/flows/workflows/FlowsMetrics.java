@@ -0,0 +1,84 @@
+package moe.caa.multilogin.flows.workflows;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 工作流线程池统计
+ * 按工序类型分别记录提交、执行、完成和拒绝的次数
+ */
+public class FlowsMetrics {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    protected Entry getEntry(String flowName) {
+        return entries.computeIfAbsent(flowName, k -> new Entry());
+    }
+
+    /**
+     * 记入一次被线程池拒绝的任务
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 被线程池拒绝的任务数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 获得所有工序类型的统计
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * 一种工序的统计
+     */
+    public static class Entry {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder running = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+
+        protected void submit() {
+            submitted.increment();
+        }
+
+        protected void start() {
+            running.increment();
+        }
+
+        protected void complete(long nanos) {
+            running.decrement();
+            completed.increment();
+            runNanos.add(nanos);
+        }
+
+        public long getSubmitted() {
+            return submitted.sum();
+        }
+
+        public long getRunning() {
+            return running.sum();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        /**
+         * 平均执行耗时，单位毫秒
+         */
+        public double getAverageMillis() {
+            long count = completed.sum();
+            return count == 0 ? 0 : runNanos.sum() / 1_000_000.0 / count;
+        }
+    }
+}
@@ -34,7 +34,7 @@ public class ParallelFlows<C> extends BaseFlows<C> {
         for (BaseFlows<C> step : steps) {
             flag = true;
             currentTasks.add(step);
-            BaseFlows.getExecutorService().execute(() -> {
+            BaseFlows.submit(step, () -> {
                 try {
                     Signal signal = step.run(context);
                     if (signal != Signal.TERMINATED) return;
@@ -0,0 +1,162 @@
+package moe.caa.multilogin.loadtest;
+
+import moe.caa.multilogin.api.auth.AuthResult;
+import moe.caa.multilogin.api.auth.GameProfile;
+import moe.caa.multilogin.benchmarks.harness.HarnessCore;
+import moe.caa.multilogin.benchmarks.harness.StubYggdrasilServer;
+import moe.caa.multilogin.core.auth.LoginAuthResult;
+import moe.caa.multilogin.core.auth.service.yggdrasil.YggdrasilAuthenticationResult;
+import moe.caa.multilogin.core.main.MultiCore;
+import moe.caa.multilogin.core.metrics.LatencyHistogram;
+import moe.caa.multilogin.core.metrics.MetricsRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 端到端的登录压力测试
+ * 模拟大量玩家同时登录，统计吞吐量、耗时分位数、线程数和数据库连接池占用
+ */
+public class LoadTest {
+    private final LoadTestOptions options;
+    private final StubYggdrasilServer server;
+    private final HarnessCore harness;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<AuthResult.Result, LongAdder> results = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    private LoadTest(LoadTestOptions options, StubYggdrasilServer server, HarnessCore harness) {
+        this.options = options;
+        this.server = server;
+        this.harness = harness;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("Options: " + options);
+        try (StubYggdrasilServer server = new StubYggdrasilServer(options.getLatency(), options.getErrorRate())) {
+            server.start();
+            try (HarnessCore harness = new HarnessCore(options.toConfig(), server.getHasJoinedUrl())) {
+                new LoadTest(options, server, harness).run();
+            }
+        }
+        System.exit(0);
+    }
+
+    private void run() throws InterruptedException {
+        MultiCore core = harness.getCore();
+        try (ResourceSampler sampler = new ResourceSampler(core.getSqlManager().getPool())) {
+            sampler.start();
+            long start = System.nanoTime();
+            for (int round = 0; round < options.getRounds(); round++) {
+                runRound();
+            }
+            long elapsed = System.nanoTime() - start;
+            report(elapsed, sampler);
+        }
+    }
+
+    // 每个玩家登录一次，同时进行中的登录数不超过 concurrency
+    private void runRound() throws InterruptedException {
+        Semaphore permits = new Semaphore(options.getConcurrency());
+        CountDownLatch latch = new CountDownLatch(options.getPlayers());
+        ExecutorService executor = options.getMode() == LoadTestOptions.Mode.AUTH_ASYNC
+                ? null : Executors.newFixedThreadPool(options.getConcurrency());
+        for (int i = 0; i < options.getPlayers(); i++) {
+            permits.acquire();
+            String username = "player" + i;
+            Runnable done = () -> {
+                permits.release();
+                latch.countDown();
+            };
+            if (executor == null) {
+                login(username, done);
+            } else {
+                executor.execute(() -> login(username, done));
+            }
+        }
+        latch.await();
+        if (executor != null) executor.shutdown();
+    }
+
+    private void login(String username, Runnable done) {
+        MultiCore core = harness.getCore();
+        long start = System.nanoTime();
+        if (options.getMode() == LoadTestOptions.Mode.AUTH_ASYNC) {
+            CompletableFuture<LoginAuthResult> future;
+            try {
+                future = core.getAuthHandler().authAsync(username, "serverId", "127.0.0.1");
+            } catch (Throwable e) {
+                complete(null, e, start, done);
+                return;
+            }
+            future.whenComplete((result, throwable) -> complete(result, throwable, start, done));
+            return;
+        }
+        LoginAuthResult result;
+        try {
+            if (options.getMode() == LoadTestOptions.Mode.AUTH) {
+                result = core.getAuthHandler().auth(username, "serverId", "127.0.0.1");
+            } else {
+                result = core.getAuthHandler().checkIn(new YggdrasilAuthenticationResult(
+                        YggdrasilAuthenticationResult.Reason.ALLOWED,
+                        new GameProfile(StubYggdrasilServer.onlineUUIDOf(username), username, new HashMap<>()),
+                        harness.getServiceConfig()));
+            }
+        } catch (Throwable e) {
+            complete(null, e, start, done);
+            return;
+        }
+        complete(result, null, start, done);
+    }
+
+    // 登录成功的玩家立即进入并退出游戏，和真实玩家一样取走登录缓存
+    private void complete(LoginAuthResult result, Throwable throwable, long start, Runnable done) {
+        try {
+            latency.recordSince(start);
+            if (throwable != null || result == null) {
+                errors.increment();
+                return;
+            }
+            results.computeIfAbsent(result.getResult(), k -> new LongAdder()).increment();
+            if (result.getResult() == AuthResult.Result.ALLOW) {
+                GameProfile profile = result.getResponse();
+                harness.getCore().getPlayerHandler().pushPlayerJoinGame(profile.getId(), profile.getName());
+                harness.getCore().getPlayerHandler().pushPlayerQuitGame(profile.getId(), profile.getName());
+            }
+        } finally {
+            done.run();
+        }
+    }
+
+    private void report(long elapsedNanos, ResourceSampler sampler) {
+        long total = latency.getCount();
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.println();
+        System.out.println("===== MultiLogin load test =====");
+        System.out.printf("Logins        : %d in %.2f s (%.1f logins/s)%n", total, seconds, total / seconds);
+        System.out.printf("Latency (ms)  : p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+                toMillis(latency.getQuantile(0.5)), toMillis(latency.getQuantile(0.95)),
+                toMillis(latency.getQuantile(0.99)), toMillis(latency.getMax()));
+        System.out.printf("Results       : %s, errors %d%n", results, errors.sum());
+        System.out.printf("hasJoined     : %d requests served by the stub%n", server.getRequests().sum());
+        System.out.printf("Threads       : peak %d%n", sampler.getPeakThreads());
+        System.out.printf("SQL pool      : %s, peak active %d / %d, peak awaiting %d, saturated in %d of %d samples%n",
+                harness.getCore().getSqlManager().getPool().name(),
+                sampler.getPeakActiveConnections(), harness.getCore().getSqlManager().getPool().getMaxConnections(),
+                sampler.getPeakThreadsAwaitingConnection(), sampler.getSaturatedSamples(), sampler.getSamples());
+        System.out.println();
+        System.out.println("Stage latency (ms):");
+        for (MetricsRegistry.Family<LatencyHistogram> family : harness.getCore().getMetricsRegistry().getHistograms()) {
+            family.getChildren().forEach((label, histogram) -> System.out.printf("  %s[%s] count %d, p50 %.2f, p99 %.2f%n",
+                    family.getName(), label, histogram.getCount(),
+                    toMillis(histogram.getQuantile(0.5)), toMillis(histogram.getQuantile(0.99))));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,91 @@
+package moe.caa.multilogin.loadtest;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 压力测试参数
+ */
+@Getter
+@ToString
+public class LoadTestOptions {
+    // 模拟玩家数
+    private int players = 1000;
+    // 同时进行中的登录数
+    private int concurrency = 100;
+    // 每个玩家登录的轮数，第二轮起都是老玩家
+    private int rounds = 2;
+    // 模拟验证服务的响应延迟，单位毫秒
+    private long latency = 50;
+    // 模拟验证服务返回错误的比例
+    private double errorRate = 0;
+    // 登录方式
+    private Mode mode = Mode.AUTH;
+    // 数据库类型，H2 或 MYSQL
+    private String backend = "H2";
+    private String mysqlIp = "127.0.0.1";
+    private int mysqlPort = 3306;
+    private String mysqlDatabase = "multilogin_loadtest";
+    private String mysqlUsername = "root";
+    private String mysqlPassword = "root";
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String key = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + key);
+            String value = args[++i];
+            switch (key) {
+                case "--players" -> options.players = Integer.parseInt(value);
+                case "--concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "--rounds" -> options.rounds = Integer.parseInt(value);
+                case "--latency" -> options.latency = Long.parseLong(value);
+                case "--error-rate" -> options.errorRate = Double.parseDouble(value);
+                case "--mode" -> options.mode = Mode.valueOf(value.toUpperCase());
+                case "--backend" -> options.backend = value.toUpperCase();
+                case "--mysql-ip" -> options.mysqlIp = value;
+                case "--mysql-port" -> options.mysqlPort = Integer.parseInt(value);
+                case "--mysql-database" -> options.mysqlDatabase = value;
+                case "--mysql-username" -> options.mysqlUsername = value;
+                case "--mysql-password" -> options.mysqlPassword = value;
+                default -> throw new IllegalArgumentException("Unknown option " + key);
+            }
+        }
+        if (options.players <= 0) throw new IllegalArgumentException("--players must be greater than 0.");
+        if (options.concurrency <= 0) throw new IllegalArgumentException("--concurrency must be greater than 0.");
+        if (options.rounds <= 0) throw new IllegalArgumentException("--rounds must be greater than 0.");
+        if (!options.backend.equals("H2") && !options.backend.equals("MYSQL"))
+            throw new IllegalArgumentException("--backend must be H2 or MYSQL.");
+        return options;
+    }
+
+    /**
+     * 生成 config.yml
+     */
+    public String toConfig() {
+        if (backend.equals("H2")) {
+            return String.join("\n",
+                    "sql:",
+                    "  backend: 'H2'",
+                    "");
+        }
+        return String.join("\n",
+                "sql:",
+                "  backend: 'MYSQL'",
+                "  ip: '" + mysqlIp + "'",
+                "  port: " + mysqlPort,
+                "  username: '" + mysqlUsername + "'",
+                "  password: '" + mysqlPassword + "'",
+                "  database: '" + mysqlDatabase + "'",
+                "");
+    }
+
+    public enum Mode {
+        // 同步的 AuthHandler.auth，每个登录占用一个线程
+        AUTH,
+        // 异步的 AuthHandler.authAsync
+        AUTH_ASYNC,
+        // 跳过 hasJoined 直接进行游戏内验证，与 Floodgate 的 checkIn 路径相同
+        CHECK_IN
+    }
+}
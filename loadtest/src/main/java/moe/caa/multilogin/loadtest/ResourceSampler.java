@@ -0,0 +1,57 @@
+package moe.caa.multilogin.loadtest;
+
+import lombok.Getter;
+import moe.caa.multilogin.core.database.pool.ISQLConnectionPool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时采样线程数和数据库连接池占用，记录峰值
+ */
+public class ResourceSampler implements AutoCloseable {
+    private final ISQLConnectionPool pool;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "LoadTest Sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Getter
+    private volatile int peakThreads;
+    @Getter
+    private volatile int peakActiveConnections;
+    @Getter
+    private volatile int peakThreadsAwaitingConnection;
+    // 连接池占满的采样次数
+    @Getter
+    private volatile int saturatedSamples;
+    @Getter
+    private volatile int samples;
+
+    public ResourceSampler(ISQLConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void start() {
+        threadMXBean.resetPeakThreadCount();
+        executor.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        int active = pool.getActiveConnections();
+        peakThreads = Math.max(peakThreads, threadMXBean.getPeakThreadCount());
+        peakActiveConnections = Math.max(peakActiveConnections, active);
+        peakThreadsAwaitingConnection = Math.max(peakThreadsAwaitingConnection, pool.getThreadsAwaitingConnection());
+        if (active >= pool.getMaxConnections()) saturatedSamples++;
+        samples++;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -181,47 +181,83 @@ public class MultiInitialLoginSessionHandler {
             String serverId = EncryptionUtils.generateServerId(decryptedSharedSecret, serverKeyPair.getPublic());
             String playerIp = ((InetSocketAddress) this.mcConnection.getRemoteAddress()).getHostString();
 
-            LoginAuthResult result = (LoginAuthResult) multiCoreAPI.getAuthHandler().auth(username, serverId, playerIp);
-
-            if (this.mcConnection.isClosed()) return;
-            try {
-                this.mcConnection.enableEncryption(decryptedSharedSecret);
-            } catch (GeneralSecurityException var8) {
-                LoggerProvider.getLogger().error("Unable to enable encryption for connection", var8);
-                this.mcConnection.close(true);
-                return;
-            }
-            if (result.getResult() == AuthResult.Result.ALLOW) {
-                GameProfile gameProfile = result.getResponse();
-
-                try {
-                    SkinRestorerResult restorerResult = multiCoreAPI.getSkinRestorerHandler().doRestorer(result);
-                    if (restorerResult.getThrowable() != null) {
-                        LoggerProvider.getLogger().error("An exception occurred while processing the skin repair.", restorerResult.getThrowable());
+            // 异步验证，不阻塞网络线程
+            multiCoreAPI.getAuthHandler().authAsync(username, serverId, playerIp).whenComplete((authResult, throwable) -> {
+                if (throwable != null) {
+                    handleError(throwable);
+                    return;
+                }
+                // 皮肤修复可能需要等待网络请求，交给异步线程处理
+                multiCoreAPI.getPlugin().getRunServer().getScheduler().runTaskAsync(() -> {
+                    try {
+                        LoginAuthResult result = (LoginAuthResult) authResult;
+                        GameProfile gameProfile = result.getResult() == AuthResult.Result.ALLOW ? restoreSkin(result) : null;
+                        this.mcConnection.eventLoop().execute(() -> {
+                            try {
+                                finish(result, gameProfile, decryptedSharedSecret);
+                            } catch (Throwable e) {
+                                handleError(e);
+                            }
+                        });
+                    } catch (Throwable e) {
+                        handleError(e);
                     }
-                    LoggerProvider.getLogger().debug(String.format("Skin restore result of %s is %s.", result.getBaseServiceAuthenticationResult().getResponse().getName(), restorerResult.getReason()));
+                });
+            });
+        } catch (GeneralSecurityException var9) {
+            LoggerProvider.getLogger().error("Unable to enable encryption.", var9);
+            this.mcConnection.close(true);
+        }
+    }
 
-                    if (restorerResult.getResponse() != null) {
-                        gameProfile = restorerResult.getResponse();
-                    }
-                } catch (Exception e) {
-                    LoggerProvider.getLogger().debug(String.format("Skin restore result of %s is %s.", result.getBaseServiceAuthenticationResult().getResponse().getName(), "error"));
-                    LoggerProvider.getLogger().debug("An exception occurred while processing the skin repair.", e);
-                }
+    private GameProfile restoreSkin(LoginAuthResult result) {
+        GameProfile gameProfile = result.getResponse();
+        try {
+            SkinRestorerResult restorerResult = multiCoreAPI.getSkinRestorerHandler().doRestorer(result);
+            if (restorerResult.getThrowable() != null) {
+                LoggerProvider.getLogger().error("An exception occurred while processing the skin repair.", restorerResult.getThrowable());
+            }
+            LoggerProvider.getLogger().debug(String.format("Skin restore result of %s is %s.", result.getBaseServiceAuthenticationResult().getResponse().getName(), restorerResult.getReason()));
 
-                this.mcConnection.setActiveSessionHandler(StateRegistry.LOGIN,
-                        (AuthSessionHandler) authSessionHandler_allArgsConstructor.invoke(
-                        this.server, inbound, generateGameProfile(gameProfile), true
-                ));
-            } else {
-                this.inbound.disconnect(Component.text(result.getKickMessage()));
+            if (restorerResult.getResponse() != null) {
+                gameProfile = restorerResult.getResponse();
             }
-        } catch (GeneralSecurityException var9) {
-            LoggerProvider.getLogger().error("Unable to enable encryption.", var9);
+        } catch (Exception e) {
+            LoggerProvider.getLogger().debug(String.format("Skin restore result of %s is %s.", result.getBaseServiceAuthenticationResult().getResponse().getName(), "error"));
+            LoggerProvider.getLogger().debug("An exception occurred while processing the skin repair.", e);
+        }
+        return gameProfile;
+    }
+
+    // 回到连接所在的线程后继续登录流程
+    private void finish(LoginAuthResult result, GameProfile gameProfile, byte[] decryptedSharedSecret) throws Throwable {
+        if (this.mcConnection.isClosed()) return;
+        try {
+            this.mcConnection.enableEncryption(decryptedSharedSecret);
+        } catch (GeneralSecurityException var8) {
+            LoggerProvider.getLogger().error("Unable to enable encryption for connection", var8);
             this.mcConnection.close(true);
+            return;
+        }
+        if (result.getResult() == AuthResult.Result.ALLOW) {
+            this.mcConnection.setActiveSessionHandler(StateRegistry.LOGIN,
+                    (AuthSessionHandler) authSessionHandler_allArgsConstructor.invoke(
+                    this.server, inbound, generateGameProfile(gameProfile), true
+            ));
+        } else {
+            this.inbound.disconnect(Component.text(result.getKickMessage()));
         }
     }
 
+    private void handleError(Throwable throwable) {
+        LoggerProvider.getLogger().error("An exception occurred while processing a login request.", throwable);
+        if (this.mcConnection.isClosed()) return;
+        this.mcConnection.eventLoop().execute(() -> {
+            this.inbound.disconnect(Component.text(multiCoreAPI.getLanguageHandler().getMessage("auth_error")));
+            this.mcConnection.close(true);
+        });
+    }
+
     private com.velocitypowered.api.util.GameProfile generateGameProfile(GameProfile response) {
         return new com.velocitypowered.api.util.GameProfile(
                 response.getId(),